@@ -0,0 +1,10 @@
+package io.github.cacezhou.slimefinder;
+
+/**
+ * 基准测试使用的固定种子，保证不同版本之间测的是同一份数据
+ */
+final class BenchmarkSeeds {
+    static final long WORLD_SEED = 8594768700734077283L;
+
+    private BenchmarkSeeds() {}
+}
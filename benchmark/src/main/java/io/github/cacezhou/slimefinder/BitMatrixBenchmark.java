@@ -0,0 +1,74 @@
+package io.github.cacezhou.slimefinder;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BitMatrix 单项操作的耗时，窗口与掩码尺寸与 SlimeSlider 中一致
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BitMatrixBenchmark {
+
+    @Param({"8", "16", "32", "64"})
+    public int radius;
+
+    private BitMatrix window;
+    private BitMatrix circle;
+    private int[] edgeRows;
+    private int[] edgeCols;
+    private int direction = 1;
+
+    @Setup
+    public void setup() {
+        int dim = 2 * radius + 1;
+        window = BitMatrix.create(dim, dim);
+        circle = BitMatrix.createCircleEven(radius);
+        Random random = new Random(BenchmarkSeeds.WORLD_SEED);
+        for (int r = 0; r < dim; r++) {
+            for (int c = 0; c < dim; c++) {
+                window.set(r, c, random.nextInt(10) == 0);
+            }
+        }
+        // 一列位置，模拟增量计分时的边缘格子
+        edgeRows = new int[2 * radius];
+        edgeCols = new int[2 * radius];
+        for (int i = 0; i < edgeRows.length; i++) {
+            edgeRows[i] = i;
+            edgeCols[i] = random.nextInt(dim);
+        }
+    }
+
+    // 左右交替移动，窗口内容不会全部移空
+    @Benchmark
+    public void shiftHorizontal() {
+        window.shiftHorizontal(direction);
+        direction = -direction;
+    }
+
+    @Benchmark
+    public void shiftVertical() {
+        window.shiftVertical(1);
+    }
+
+    @Benchmark
+    public int countIntersection() {
+        return window.countIntersection(circle);
+    }
+
+    @Benchmark
+    public int countIntersectionAtOffset() {
+        return window.countIntersectionAt(1, 1, circle);
+    }
+
+    @Benchmark
+    public int countSetAt() {
+        return window.countSetAt(edgeRows, edgeCols);
+    }
+}
@@ -0,0 +1,37 @@
+package io.github.cacezhou.slimefinder;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * findTopSlimeClusters 端到端吞吐量，单位为每秒计分的中心点数
+ * 搜索区域固定为 (2 * SEARCH_RADIUS + 1)² 个中心点
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    private static final int SEARCH_RADIUS = 256;
+    private static final int CENTRES = (2 * SEARCH_RADIUS + 1) * (2 * SEARCH_RADIUS + 1);
+
+    @Param({"8", "16", "32", "64"})
+    public int radius;
+
+    @Param({"SLIDER", "TILE", "BITSLICE"})
+    public AsyncSlimeFinder.Engine engine;
+
+    @Param({"1"})
+    public int threads;
+
+    @Benchmark
+    @OperationsPerInvocation(CENTRES)
+    public List<SearchResult> findTopSlimeClusters() {
+        return AsyncSlimeFinder.findTopSlimeClusters(BenchmarkSeeds.WORLD_SEED, 0, 0, SEARCH_RADIUS, radius,
+                threads, 10, new SearchOptions().engine(engine));
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.cacezhou.slimefinder;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个区块判定的吞吐量：每次调用判定一整行 ROW 个区块
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SlimeChunkBenchmark {
+    private static final int ROW = 1024;
+
+    private final Random random = new Random();
+    private final SlimeChunkOracle oracle = new SlimeChunkOracle(BenchmarkSeeds.WORLD_SEED);
+    private final long[] xTerms = new long[ROW];
+    private int chunkZ;
+
+    @Setup
+    public void setup() {
+        oracle.fillXTerms(xTerms, -ROW / 2);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW)
+    public int isSlimeChunk() {
+        int z = chunkZ++;
+        int n = 0;
+        for (int x = -ROW / 2; x < ROW / 2; x++) {
+            if (Main.isSlimeChunk(random, BenchmarkSeeds.WORLD_SEED, x, z)) n++;
+        }
+        return n;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW)
+    public int oracleWithTables() {
+        long zTerm = SlimeChunkOracle.zTerm(chunkZ++);
+        int n = 0;
+        for (int i = 0; i < ROW; i++) {
+            if (SlimeChunkOracle.isSlime(xTerms[i], zTerm)) n++;
+        }
+        return n;
+    }
+}
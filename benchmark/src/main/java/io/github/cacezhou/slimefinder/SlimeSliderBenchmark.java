@@ -0,0 +1,37 @@
+package io.github.cacezhou.slimefinder;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SlimeSlider.slideNext 单步耗时（含新行区块生成与计分）
+ * 每次迭代新建滑块，ROWS 行后转向一次，测量值包含转向的均摊开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SlimeSliderBenchmark {
+    private static final int ROWS = 4096;
+
+    @Param({"8", "16", "32", "64"})
+    public int radius;
+
+    @Param({"RECOUNT", "INCREMENTAL"})
+    public SlimeSlider.ScoreMode scoreMode;
+
+    private SlimeSlider slider;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        slider = new SlimeSlider(0, 0, ROWS, radius, BenchmarkSeeds.WORLD_SEED, scoreMode);
+    }
+
+    @Benchmark
+    public int slideNext() {
+        return slider.slideNext();
+    }
+}
@@ -0,0 +1,201 @@
+package io.github.cacezhou.slimefinder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 挂机点的计分掩码：以挂机点为中心，哪些区块计入得分
+ *
+ * 掩码统一为 2r x 2r，挂机点站在中间四个区块的公共顶点上，覆盖区块 [c - r, c + r - 1]，
+ * 与 BitMatrix.createCircleEven 的约定相同；区块是否计入以区块中心到挂机点的水平距离判断
+ *
+ * 构造时预先算出每一行的连续段，TileScorer 按段查前缀和，SlimeSlider 按段求增量边缘，
+ * 因此任意形状的计分代价只与段数有关，圆环每行最多两段
+ */
+public final class AfkMask {
+    private final String description;
+    private final int radius;
+    private final BitMatrix bits;
+
+    // 每个水平连续段：所在行、起始列、结束列（含）
+    private final int[] runRows;
+    private final int[] runStarts;
+    private final int[] runEnds;
+
+    private AfkMask(String description, BitMatrix bits) {
+        this.description = description;
+        this.radius = bits.rows_count / 2;
+        this.bits = bits;
+
+        int n = 0;
+        int[] rows = new int[bits.rows_count * bits.cols_count];
+        int[] starts = new int[rows.length];
+        int[] ends = new int[rows.length];
+        for (int r = 0; r < bits.rows_count; r++) {
+            int c = 0;
+            while (c < bits.cols_count) {
+                if (!bits.get(r, c)) { c++; continue; }
+                int start = c;
+                while (c < bits.cols_count && bits.get(r, c)) c++;
+                rows[n] = r;
+                starts[n] = start;
+                ends[n] = c - 1;
+                n++;
+            }
+        }
+        this.runRows = Arrays.copyOf(rows, n);
+        this.runStarts = Arrays.copyOf(starts, n);
+        this.runEnds = Arrays.copyOf(ends, n);
+    }
+
+    /**
+     * 半径为 r 个区块的圆，即原先唯一的计分方式
+     */
+    public static AfkMask circle(int r) {
+        return new AfkMask("circle:" + r, BitMatrix.createCircleEven(r));
+    }
+
+    /**
+     * 2r x 2r 的正方形
+     */
+    public static AfkMask square(int r) {
+        BitMatrix m = BitMatrix.create(2 * r, 2 * r);
+        for (int row = 0; row < 2 * r; row++) {
+            for (int col = 0; col < 2 * r; col++) m.set(row, col, true);
+        }
+        return new AfkMask("square:" + r, m);
+    }
+
+    /**
+     * 刷怪圆环：区块中心到挂机点的水平距离 d 满足 innerBlocks < d ≤ outerBlocks（单位：方块）
+     * 史莱姆不会在玩家 24 格内生成，超过 128 格立即消失，annulus(24, 128) 即实际可刷怪的区域
+     */
+    public static AfkMask annulus(int innerBlocks, int outerBlocks) {
+        if (innerBlocks < 0 || outerBlocks <= innerBlocks) {
+            throw new IllegalArgumentException("Invalid annulus: " + innerBlocks + ".." + outerBlocks);
+        }
+        int r = (outerBlocks + 15) / 16;
+        BitMatrix m = BitMatrix.create(2 * r, 2 * r);
+        long innerSq = (long) innerBlocks * innerBlocks;
+        long outerSq = (long) outerBlocks * outerBlocks;
+        for (int row = 0; row < 2 * r; row++) {
+            // 区块中心相对挂机点的偏移：(row - r) * 16 + 8
+            long dz = (row - r) * 16L + 8;
+            for (int col = 0; col < 2 * r; col++) {
+                long dx = (col - r) * 16L + 8;
+                long dSq = dx * dx + dz * dz;
+                m.set(row, col, dSq > innerSq && dSq <= outerSq);
+            }
+        }
+        return new AfkMask("annulus:" + innerBlocks + ":" + outerBlocks, m);
+    }
+
+    /**
+     * 从文本文件读取掩码：每行一行区块，1 或 x 表示计入，0 或 . 表示不计入，空白字符被忽略，
+     * 因此 BitMatrix.toString 的输出可以直接使用；空行被忽略
+     * 掩码必须是边长为偶数的正方形，挂机点位于正中间的顶点
+     */
+    public static AfkMask load(Path file) throws IOException {
+        List<String> rows = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            String row = line.replaceAll("\\s", "");
+            if (!row.isEmpty()) rows.add(row);
+        }
+        return fromRows("file:" + file, rows);
+    }
+
+    /**
+     * 由每行一个字符串构造掩码，字符约定同 load，不含空白；分布式节点用它还原协调端发来的掩码
+     * @throws IOException 行数或列数不合法，或含有无法识别的字符
+     */
+    static AfkMask fromRows(String description, List<String> rows) throws IOException {
+        int dim = rows.size();
+        if (dim == 0 || dim % 2 != 0) {
+            throw new IOException("mask must be a square with an even side, got " + dim + " rows");
+        }
+        BitMatrix m = BitMatrix.create(dim, dim);
+        for (int row = 0; row < dim; row++) {
+            String line = rows.get(row);
+            if (line.length() != dim) {
+                throw new IOException("mask row " + (row + 1) + " has " + line.length() + " cells, expected " + dim);
+            }
+            for (int col = 0; col < dim; col++) {
+                char ch = line.charAt(col);
+                if (ch == '1' || ch == 'x' || ch == 'X') {
+                    m.set(row, col, true);
+                } else if (ch != '0' && ch != '.') {
+                    throw new IOException("unexpected character '" + ch + "' in mask row " + (row + 1));
+                }
+            }
+        }
+        return new AfkMask(description, m);
+    }
+
+    /**
+     * 解析配置中的掩码描述：
+     * circle、square（边长取 slimeRadius），annulus（默认 24 到 128 格）、annulus:内径:外径，file:路径
+     * @throws IllegalArgumentException 描述无法识别
+     * @throws IOException 掩码文件无法读取或格式错误
+     */
+    public static AfkMask parse(String spec, int slimeRadius) throws IOException {
+        String[] parts = spec.trim().split(":", 2);
+        switch (parts[0].toLowerCase()) {
+            case "circle":
+                return circle(slimeRadius);
+            case "square":
+                return square(slimeRadius);
+            case "annulus":
+                if (parts.length == 1) return annulus(24, 128);
+                String[] bounds = parts[1].split(":");
+                if (bounds.length != 2) throw new IllegalArgumentException("Expected annulus:<inner>:<outer>");
+                return annulus(Integer.parseInt(bounds[0].trim()), Integer.parseInt(bounds[1].trim()));
+            case "file":
+                if (parts.length == 1) throw new IllegalArgumentException("Expected file:<path>");
+                return load(Path.of(parts[1].trim()));
+            default:
+                throw new IllegalArgumentException("Unknown mask: " + spec);
+        }
+    }
+
+    // 掩码边长的一半，窗口、位图缓存边框、结果视图都按它计算
+    public int radius() { return radius; }
+
+    // 计入得分的区块数，即可能的最高分
+    public int cellCount() {
+        int n = 0;
+        for (int k = 0; k < runRows.length; k++) n += runEnds[k] - runStarts[k] + 1;
+        return n;
+    }
+
+    // 内部矩阵，调用方不得修改
+    BitMatrix bits() { return bits; }
+
+    int[] runRows() { return runRows; }
+
+    int[] runStarts() { return runStarts; }
+
+    int[] runEnds() { return runEnds; }
+
+    /**
+     * 掩码形状的指纹，记入断点，换了掩码的断点不会被误用
+     */
+    long fingerprint() {
+        long h = 1125899906842597L;
+        h = 31 * h + bits.rows_count;
+        for (int k = 0; k < runRows.length; k++) {
+            h = 31 * h + runRows[k];
+            h = 31 * h + runStarts[k];
+            h = 31 * h + runEnds[k];
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
@@ -1,15 +1,63 @@
 package io.github.cacezhou.slimefinder;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
 
 
-record SearchResult(int x, int z, int count, String matrixView) {}
+/**
+ * 一个结果点：中心区块坐标与得分
+ * 区块视图不随结果保存，在调用 matrix / matrixView 时按种子现算，topN 很大时内存只与点数成正比
+ */
+record SearchResult(int x, int z, int count, long seed, int slimeRadius) {
+
+    // 以 (x, z) 为中心的 (2r+1) x (2r+1) 区块，1 为史莱姆区块
+    BitMatrix matrix() {
+        int r = slimeRadius;
+        BitMatrix m = BitMatrix.create(2 * r + 1, 2 * r + 1);
+        SlimeChunkOracle oracle = new SlimeChunkOracle(seed);
+        for (int row = 0; row < 2 * r + 1; row++) {
+            for (int col = 0; col < 2 * r + 1; col++) {
+                m.set(row, col, oracle.isSlimeChunk(x - r + col, z - r + row));
+            }
+        }
+        return m;
+    }
+
+    String matrixView() {
+        return matrix().toString();
+    }
+}
 
 public class AsyncSlimeFinder {
 
-    private record SimplePoint(int x, int z, int score) {}
+    record SimplePoint(int x, int z, int score) {}
+
+    // 计分引擎
+    public enum Engine {
+        // 每个工作单元内用 SlimeSlider 蛇形滑动
+        SLIDER,
+        // 每个工作单元一次生成区块并用行前缀和计分
+        TILE,
+        // 每个工作单元一次生成区块，64 个相邻中心点共用位平面计数器逐行增量计分
+        BITSLICE
+    }
+
+    // TILE 引擎的 tile 边长（中心点个数），也是工作单元的最小边长
+    private static final int TILE_SIZE = 128;
+
+    // “最差”的点排在前面：得分低者更差，同分时坐标大者更差，与 TopNCollector 的堆序一致
+    // 使结果与扫描顺序无关，不同引擎、不同线程数下的 topN 完全一致
+    static final Comparator<SimplePoint> WORST_FIRST = Comparator
+            .comparingInt(SimplePoint::score)
+            .thenComparing(Comparator.comparingInt(SimplePoint::x).reversed())
+            .thenComparing(Comparator.comparingInt(SimplePoint::z).reversed());
 
     public static List<SearchResult> findTopSlimeClusters(
             long worldSeed,
@@ -20,123 +68,891 @@ public class AsyncSlimeFinder {
             int threadCount,
             int topN
     ) {
+        return findTopSlimeClusters(worldSeed, centerChunkX, centerChunkZ, searchRadius,
+                slimeRadius, threadCount, topN, new SearchOptions());
+    }
+
+    public static List<SearchResult> findTopSlimeClusters(
+            long worldSeed,
+            int centerChunkX,
+            int centerChunkZ,
+            int searchRadius,
+            int slimeRadius,
+            int threadCount,
+            int topN,
+            SearchOptions options
+    ) {
+        AfkMask[] masks = {maskFor(options, slimeRadius)};
+        return searchMasks(worldSeed, centerChunkX, centerChunkZ, searchRadius, masks, threadCount, topN, options,
+                newHandle(searchRadius, options)).get(0);
+    }
+
+    /**
+     * 在后台线程中执行 findTopSlimeClusters，立即返回句柄
+     * 调用方通过句柄等待结果、查看进度或取消，options 中的进度监听器同样生效
+     */
+    public static SearchHandle startSearch(
+            long worldSeed,
+            int centerChunkX,
+            int centerChunkZ,
+            int searchRadius,
+            int slimeRadius,
+            int threadCount,
+            int topN,
+            SearchOptions options
+    ) {
+        AfkMask[] masks = {maskFor(options, slimeRadius)};
+        SearchHandle handle = newHandle(searchRadius, options);
+        Thread runner = new Thread(() -> {
+            try {
+                // 已取消时 complete 不起作用
+                handle.complete(searchMasks(worldSeed, centerChunkX, centerChunkZ, searchRadius, masks,
+                        threadCount, topN, options, handle).get(0));
+            } catch (Throwable e) {
+                handle.fail(e);
+            }
+        }, "slime-search");
+        runner.start();
+        return handle;
+    }
+
+    /**
+     * 一次扫描同时计算多个半径：区块只生成一次，每个半径各自计分、各自维护 topN
+     * 设置了 SearchOptions.mask 时忽略该掩码，每个半径都按圆形计分
+     * @param slimeRadii 一个或多个半径，重复的半径只计算一次
+     * @return 半径到该半径 topN 的映射，按 slimeRadii 中首次出现的顺序排列
+     */
+    public static Map<Integer, List<SearchResult>> findTopSlimeClustersMulti(
+            long worldSeed,
+            int centerChunkX,
+            int centerChunkZ,
+            int searchRadius,
+            int[] slimeRadii,
+            int threadCount,
+            int topN,
+            SearchOptions options
+    ) {
+        if (options.mask() != null) {
+            options.log().println("多半径搜索按圆形计分，忽略配置的掩码 " + options.mask());
+        }
+        int[] radii = Arrays.stream(slimeRadii).distinct().toArray();
+        AfkMask[] masks = new AfkMask[radii.length];
+        for (int k = 0; k < radii.length; k++) masks[k] = AfkMask.circle(radii[k]);
+        List<List<SearchResult>> results = searchMasks(worldSeed, centerChunkX, centerChunkZ, searchRadius, masks,
+                threadCount, topN, options, newHandle(searchRadius, options));
+        Map<Integer, List<SearchResult>> byRadius = new LinkedHashMap<>();
+        for (int k = 0; k < radii.length; k++) byRadius.put(radii[k], results.get(k));
+        return byRadius;
+    }
+
+    /**
+     * 用一个或多个掩码搜索同一区域，窗口、位图缓存边框与工作单元按最大的掩码确定
+     * @param handle 进度写入 handle.progress；handle 被取消时跳过其余单元，返回已找到的部分结果
+     * @return 每个掩码各自的 topN，与 masks 一一对应；因时间预算或目标分数提前停止时为已搜索部分的 topN
+     */
+    private static List<List<SearchResult>> searchMasks(
+            long worldSeed,
+            int centerChunkX,
+            int centerChunkZ,
+            int searchRadius,
+            AfkMask[] masks,
+            int threadCount,
+            int topN,
+            SearchOptions options,
+            SearchHandle handle
+    ) {
+        long startNanos = System.nanoTime();
+        Engine engine = options.engine();
+        int maskCount = masks.length;
+        int maskRadius = maxRadius(masks);
         int sideLength = 2 * searchRadius + 1;
         long totalSteps = (long) sideLength * sideLength; // 总步数
-        int startXGlobal = centerChunkX - searchRadius;
-        int startZGlobal = centerChunkZ - searchRadius;
 
-        // 增加进度累加器
-        LongAdder completedSteps = new LongAdder();
+        ProgressTracker progress = handle.progress.start();
+        LongAdder completedSteps = progress.completed;
 
-        // 启动一个后台监控线程打印进度
-        // 在 findTopSlimeClusters 方法内开头
-        long startTime = System.currentTimeMillis(); // 记录开始时间
-        Thread monitorThread = new Thread(() -> {
-            try {
-                while (!Thread.currentThread().isInterrupted()) {
-                    long current = completedSteps.sum();
-                    if (current > 0) {
-                        long now = System.currentTimeMillis();
-                        long elapsed = now - startTime;
-
-                        // 计算进度
-                        double progress = (double) current / totalSteps;
-                        // 推算剩余时间 (毫秒)
-                        long etaMillis = (long) (elapsed / progress) - elapsed;
-
-                        // 格式化时间显示
-                        String etaStr = Main.formatTime(etaMillis);
-                        double percentage = progress * 100.0;
-
-                        // 打印进度、百分比、以及 ETA
-                        System.out.printf("\r[Progress] %d/%d (%.2f%%) | ETA: %s",
-                                current, totalSteps, percentage, etaStr);
-
-                        if (current >= totalSteps) break;
+        if (options.prune() && engine != Engine.TILE) {
+            options.log().println("剪枝只对 tile 引擎生效，本次搜索不剪枝");
+        }
+        // 热力图要求单元边长为 2 的幂，金字塔的低层格子才不会跨单元
+        int unitSize = unitSizeFor(options, maskRadius);
+        if (options.heatmapDir() != null) unitSize = Math.max(1, Integer.highestOneBit(unitSize - 1) << 1);
+        SearchGrid grid = SearchGrid.of(centerChunkX, centerChunkZ, searchRadius, unitSize);
+        SlimeBitmapCache cache = openCache(options, grid, worldSeed, maskRadius, threadCount);
+        SearchCheckpoint checkpoint = openCheckpoint(options, grid, worldSeed, centerChunkX, centerChunkZ,
+                searchRadius, masks, topN);
+        ScorePyramid pyramid = openPyramid(options, grid, worldSeed, masks, checkpoint);
+        boolean prune = options.prune() && pyramid == null;
+
+        // 断点中已完成单元的候选点直接作为初始结果，未完成单元的点会重新计算
+        List<List<SimplePoint>> restored = new ArrayList<>(maskCount);
+        for (int k = 0; k < maskCount; k++) restored.add(new ArrayList<>());
+        if (checkpoint != null) {
+            for (int k = 0; k < maskCount; k++) {
+                for (SimplePoint p : checkpoint.restoredCandidates().get(k)) {
+                    if (grid.containsCentre(p.x, p.z) && checkpoint.isDone(grid.unitOf(p.x, p.z))) {
+                        restored.get(k).add(p);
                     }
-                    Thread.sleep(1000);
                 }
-            } catch (InterruptedException e) {
-                // 退出
             }
+            for (long unit = 0; unit < grid.unitCount(); unit++) {
+                if (checkpoint.isDone(unit)) completedSteps.add((long) grid.unitWidth(unit) * grid.unitHeight(unit));
+            }
+        }
+
+        SearchContext ctx = new SearchContext(engine, worldSeed, masks, grid.unitSize, topN, completedSteps,
+                cache, checkpoint, prune, new AtomicIntegerArray(maskCount),
+                LiveTop.of(options, worldSeed, masks, topN), options.targetScore(), new AtomicBoolean(), pyramid);
+        for (int k = 0; k < maskCount; k++) {
+            List<SimplePoint> points = restored.get(k);
+            for (SimplePoint p : points) ctx.noteScore(p.score);
+            // 恢复的候选点已满 topN 时，其中的最低分就是可靠的初始门槛
+            if (points.size() >= topN && topN > 0) {
+                TopNCollector seed = new TopNCollector(topN);
+                for (SimplePoint p : points) seed.offer(p.x, p.z, p.score);
+                ctx.publishThreshold(k, seed.minScore());
+            }
+            if (ctx.live != null) {
+                for (SimplePoint p : points) ctx.live[k].offer(p.x, p.z, p.score);
+            }
+        }
+
+        SearchMetrics metrics = new SearchMetrics(options.metricsFile());
+        metrics.start(options.metricsIntervalSeconds());
+
+        // 每个工作线程第一次领到单元时创建自己的 Worker（局部堆 + 计分器），结束后统一合并
+        Queue<Worker> workers = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Worker> localWorker = ThreadLocal.withInitial(() -> {
+            Worker w = new Worker(ctx, (engine == Engine.TILE)
+                    ? new TileScorer(worldSeed, masks, grid.unitSize, grid.unitSize, cache) : null,
+                    (engine == Engine.BITSLICE)
+                    ? new BitSliceScorer(worldSeed, masks, grid.unitSize, grid.unitSize, cache) : null,
+                    metrics.register());
+            workers.add(w);
+            return w;
         });
-        monitorThread.setDaemon(true); // 设为守护线程
-        monitorThread.start();
-
-        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
-        List<Future<PriorityQueue<SimplePoint>>> futures = new ArrayList<>();
-
-        for (int i = 0; i < threadCount; i++) {
-            final int threadStartX = startXGlobal + (i * sideLength / threadCount);
-            final int threadEndX = startXGlobal + ((i + 1) * sideLength / threadCount);
-            final int threadWidth = threadEndX - threadStartX;
-
-            if (threadWidth <= 0) continue;
-
-            futures.add(executor.submit(() -> {
-                Random rand = new Random();
-                PriorityQueue<SimplePoint> localHeap = new PriorityQueue<>(Comparator.comparingInt(SimplePoint::score));
-                SlimeSlider slider = new SlimeSlider(threadStartX, startZGlobal, sideLength, slimeRadius, worldSeed);
-
-                long currentThreadSteps = (long) threadWidth * sideLength;
-                for (long s = 0; s < currentThreadSteps; s++) {
-                    int score = slider.slideNext(rand);
-
-                    if (score > 0) {
-                        if (localHeap.size() < topN) {
-                            localHeap.add(new SimplePoint(slider.getCentre()[0], slider.getCentre()[1], score));
-                        } else if (score > localHeap.peek().score) {
-                            localHeap.poll();
-                            localHeap.add(new SimplePoint(slider.getCentre()[0], slider.getCentre()[1], score));
-                        }
-                    }
+        handle.publishRunning(() -> toResults(collectCandidates(workers, 0, restored.get(0), topN), worldSeed,
+                masks[0].radius()));
 
-                    // 每完成更新一次进度
-                    if (s > 0 && s % sideLength == 0) {
-                        completedSteps.add(sideLength);
+        // 定期保存断点
+        Thread checkpointThread = null;
+        if (checkpoint != null) {
+            long intervalMillis = Math.max(1, options.checkpointIntervalSeconds()) * 1000L;
+            checkpointThread = new Thread(() -> {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        Thread.sleep(intervalMillis);
+                        saveCheckpoint(checkpoint, workers, restored, topN);
                     }
+                } catch (InterruptedException e) {
+                    // 退出
                 }
-                // 补全剩余步数
-                completedSteps.add(currentThreadSteps % sideLength);
-                return localHeap;
-            }));
+            });
+            checkpointThread.setDaemon(true);
+            checkpointThread.start();
         }
 
-        PriorityQueue<SimplePoint> globalHeap = new PriorityQueue<>(Comparator.comparingInt(SimplePoint::score));
-        for (Future<PriorityQueue<SimplePoint>> future : futures) {
-            try {
-                PriorityQueue<SimplePoint> localHeap = future.get();
-                while (!localHeap.isEmpty()) {
-                    SimplePoint p = localHeap.poll();
-                    if (globalHeap.size() < topN) globalHeap.add(p);
-                    else if (p.score > globalHeap.peek().score) {
-                        globalHeap.poll();
-                        globalHeap.add(p);
-                    }
+        // 被 Ctrl+C 或 kill 中断时保存最终断点并打印当前结果
+        Thread shutdownHook = new Thread(() -> {
+            progress.stop();
+            if (checkpoint != null) {
+                saveCheckpoint(checkpoint, workers, restored, topN);
+                options.log().println("\n搜索被中断，进度已保存到 " + checkpoint.file());
+            } else {
+                options.log().println("\n搜索被中断");
+            }
+            options.log().println("当前已找到的结果：");
+            for (int k = 0; k < maskCount; k++) {
+                if (maskCount > 1) options.log().println("掩码 " + masks[k] + "：");
+                List<SimplePoint> partial = collectCandidates(workers, k, restored.get(k), topN);
+                for (int i = 0; i < partial.size(); i++) {
+                    SimplePoint p = partial.get(i);
+                    options.log().printf("TOP %d: 区块坐标 [%d, %d] | 史莱姆区块数: %d\n", i + 1, p.x, p.z, p.score);
                 }
-            } catch (Exception e) { e.printStackTrace(); }
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        // 取消、时间预算用完或达到目标分数后不再开始新的单元
+        long budgetNanos = options.timeBudgetMillis() * 1_000_000L;
+        BooleanSupplier budgetSpent = () -> budgetNanos > 0 && System.nanoTime() - startNanos >= budgetNanos;
+        BooleanSupplier stop = () -> handle.isCancelled() || ctx.targetReached.get() || budgetSpent.getAsBoolean();
+        // 断点中已完成的单元直接跳过
+        LongConsumer scoreUnit = unit -> {
+            if (checkpoint == null || !checkpoint.isDone(unit)) localWorker.get().scoreUnit(grid, unit);
+        };
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        try {
+            if (options.spiral()) {
+                runInOrder(pool, threadCount, grid.spiralOrder(centerChunkX, centerChunkZ), stop, scoreUnit);
+            } else {
+                pool.invoke(new UnitRangeTask(0, grid.unitCount(), stop, scoreUnit));
+            }
+        } finally {
+            pool.shutdown();
+            metrics.stop();
+        }
+
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM 正在退出，钩子已在运行
+        }
+        if (checkpointThread != null) {
+            checkpointThread.interrupt();
+            // 保存全部完成的断点，之后用同样参数 resume 可以直接得到结果
+            saveCheckpoint(checkpoint, workers, restored, topN);
         }
 
-        executor.shutdown();
-        monitorThread.interrupt(); // 停止监控线程
-        System.out.println("\n 搜索完成 \n");
+        progress.stop();
+        boolean cancelled = handle.isCancelled();
+        options.log().println(cancelled ? "\n 搜索已取消 \n" : "\n 搜索完成 \n");
+        if (!cancelled && (ctx.targetReached.get() || budgetSpent.getAsBoolean())) {
+            SearchProgress searched = progress.snapshot();
+            if (!searched.isComplete()) {
+                options.log().printf("%s，提前停止，已搜索 %.2f%% 的中心点\n", ctx.targetReached.get()
+                        ? "已找到不低于目标分数 " + options.targetScore() + " 的点" : "时间预算已用完",
+                        searched.fraction() * 100.0);
+            }
+        }
+        if (prune && engine == Engine.TILE && !cancelled) {
+            long pruned = 0;
+            for (Worker worker : workers) pruned += worker.tileScorer.getPrunedCentres();
+            options.log().printf("剪枝跳过了 %.2f%% 的中心点\n", 100.0 * pruned / (totalSteps * maskCount));
+        }
+        if (pyramid != null && !cancelled) {
+            try {
+                int maxScore = pyramid.finish(options.heatmapPng());
+                options.log().printf("热力图已写入 %s，共 %d 层，最高分 %d\n", options.heatmapDir(),
+                        pyramid.levelCount(), maxScore);
+            } catch (IOException e) {
+                System.err.println("写入热力图失败: " + e.getMessage());
+            }
+        }
 
-        List<SearchResult> finalResults = new ArrayList<>();
-        while (!globalHeap.isEmpty()) {
-            finalResults.add(convertToFullResult(globalHeap.poll(), worldSeed, slimeRadius));
+        List<List<SearchResult>> finalResults = new ArrayList<>(maskCount);
+        for (int k = 0; k < maskCount; k++) {
+            List<SearchResult> results = toResults(collectCandidates(workers, k, restored.get(k), topN), worldSeed,
+                    masks[k].radius());
+            if (!cancelled) emitResults(options.resultSink(), results);
+            finalResults.add(results);
         }
-        Collections.reverse(finalResults);
         return finalResults;
     }
 
-    private static SearchResult convertToFullResult(SimplePoint p, long seed, int r) {
-        BitMatrix m = BitMatrix.create(2 * r + 1, 2 * r + 1);
-        Random tempRand = new Random();
-        for (int row = 0; row < 2 * r + 1; row++) {
-            for (int col = 0; col < 2 * r + 1; col++) {
-                m.set(row, col, Main.isSlimeChunk(tempRand, seed, p.x - r + col, p.z - r + row));
+    /**
+     * 批量搜索多个种子，所有种子的工作单元放进同一个线程池，计分器按线程创建一次后在种子之间复用，
+     * 省去逐个种子启动 JVM、预热 JIT 和生成掩码的开销
+     * Random.setSeed 只保留低 48 位，低 48 位相同的种子结果完全相同，只搜索第一次出现的那个
+     * 批量模式不使用位图缓存和断点
+     * @return 每个种子的 topN，按最佳得分由高到低排列，同分时按前 topN 总分，再同时保持输入顺序
+     */
+    public static List<SeedResult> findTopSlimeClustersBatch(
+            long[] seeds,
+            int centerChunkX,
+            int centerChunkZ,
+            int searchRadius,
+            int slimeRadius,
+            int threadCount,
+            int topN,
+            SearchOptions options
+    ) {
+        Engine engine = options.engine();
+        AfkMask[] masks = {maskFor(options, slimeRadius)};
+        int maskRadius = masks[0].radius();
+        long[] unique = dedupeSeeds(seeds, options);
+        if (options.bitmapCacheDir() != null || options.checkpointFile() != null) {
+            options.log().println("批量模式不使用位图缓存和断点");
+        }
+        if (options.prune() && engine != Engine.TILE) {
+            options.log().println("剪枝只对 tile 引擎生效，本次搜索不剪枝");
+        }
+
+        SearchGrid grid = SearchGrid.of(centerChunkX, centerChunkZ, searchRadius, unitSizeFor(options, maskRadius));
+        long unitsPerSeed = grid.unitCount();
+        long totalSteps = grid.totalCentres() * unique.length;
+        ProgressTracker progress = new ProgressTracker(totalSteps, options).start();
+        LongAdder completedSteps = progress.completed;
+
+        // 每个种子各自的门槛，种子之间的得分互不可比
+        SearchContext[] contexts = new SearchContext[unique.length];
+        for (int i = 0; i < unique.length; i++) {
+            contexts[i] = new SearchContext(engine, unique[i], masks, grid.unitSize, topN, completedSteps,
+                    null, null, options.prune(), new AtomicIntegerArray(1), LiveTop.of(options, unique[i], masks, topN),
+                    0, new AtomicBoolean(), null);
+        }
+
+        SearchMetrics metrics = new SearchMetrics(options.metricsFile());
+        metrics.start(options.metricsIntervalSeconds());
+        Queue<BatchThread> threads = new ConcurrentLinkedQueue<>();
+        ThreadLocal<BatchThread> localThread = ThreadLocal.withInitial(() -> {
+            BatchThread t = new BatchThread(contexts, metrics.register());
+            threads.add(t);
+            return t;
+        });
+
+        // 全局单元编号 = 种子下标 * unitsPerSeed + 单元编号
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        try {
+            pool.invoke(new UnitRangeTask(0, unitsPerSeed * unique.length, null, unit ->
+                    localThread.get().worker((int) (unit / unitsPerSeed)).scoreUnit(grid, unit % unitsPerSeed)));
+        } finally {
+            pool.shutdown();
+            metrics.stop();
+        }
+
+        progress.stop();
+        options.log().println("\n 搜索完成 \n");
+        if (options.prune() && engine == Engine.TILE) {
+            long pruned = 0;
+            for (BatchThread t : threads) pruned += t.tileScorer.getPrunedCentres();
+            options.log().printf("剪枝跳过了 %.2f%% 的中心点\n", 100.0 * pruned / totalSteps);
+        }
+
+        List<SeedResult> summary = new ArrayList<>(unique.length);
+        for (int i = 0; i < unique.length; i++) {
+            TopNCollector merged = new TopNCollector(topN);
+            for (BatchThread t : threads) {
+                if (t.workers[i] != null) merged.addAll(t.workers[i].tops[0]);
             }
+            List<SimplePoint> best = merged.toList();
+            best.sort(WORST_FIRST.reversed());
+            summary.add(new SeedResult(unique[i], toResults(best, unique[i], maskRadius)));
+        }
+        // List.sort 是稳定排序，完全同分的种子保持输入顺序
+        summary.sort(Comparator.comparingInt(SeedResult::bestCount)
+                .thenComparingLong(SeedResult::totalCount)
+                .reversed());
+        if (options.resultSink() != null) {
+            for (SeedResult seedResult : summary) emitResults(options.resultSink(), seedResult.results());
+        }
+        return summary;
+    }
+
+    /**
+     * 在调用方的线程池中计算单元区间 [fromUnit, toUnit)，供分布式节点使用，不打印进度、不输出结果
+     * @param threshold 入堆门槛的初始值，即协调端当前已知的全局 topN 最低分，0 表示未知
+     * @param completedSteps 已计算的中心点数，节点据此向协调端汇报进度
+     * @return 该区间内的局部 topN
+     */
+    static TopNCollector searchUnits(ForkJoinPool pool, long worldSeed, AfkMask mask, SearchGrid grid,
+                                     long fromUnit, long toUnit, int topN, Engine engine, boolean prune,
+                                     int threshold, LongAdder completedSteps) {
+        AfkMask[] masks = {mask};
+        SearchContext ctx = new SearchContext(engine, worldSeed, masks, grid.unitSize, topN, completedSteps,
+                null, null, prune, new AtomicIntegerArray(new int[]{threshold}), null, 0, new AtomicBoolean(), null);
+        SearchMetrics metrics = new SearchMetrics(null);
+        Queue<Worker> workers = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Worker> localWorker = ThreadLocal.withInitial(() -> {
+            Worker w = new Worker(ctx, (engine == Engine.TILE)
+                    ? new TileScorer(worldSeed, masks, grid.unitSize, grid.unitSize, null) : null,
+                    (engine == Engine.BITSLICE)
+                    ? new BitSliceScorer(worldSeed, masks, grid.unitSize, grid.unitSize, null) : null,
+                    metrics.register());
+            workers.add(w);
+            return w;
+        });
+        pool.invoke(new UnitRangeTask(fromUnit, toUnit, null, unit -> localWorker.get().scoreUnit(grid, unit)));
+
+        TopNCollector merged = new TopNCollector(topN);
+        for (Worker worker : workers) merged.addAll(worker.tops[0]);
+        return merged;
+    }
+
+    // best 已由好到差排序
+    private static List<SearchResult> toResults(List<SimplePoint> best, long worldSeed, int slimeRadius) {
+        List<SearchResult> results = new ArrayList<>(best.size());
+        for (SimplePoint p : best) results.add(new SearchResult(p.x, p.z, p.score, worldSeed, slimeRadius));
+        return results;
+    }
+
+    static void emitResults(ResultSink sink, List<SearchResult> results) {
+        if (sink == null) return;
+        for (int i = 0; i < results.size(); i++) {
+            sink.result(i + 1, results.get(i));
+        }
+    }
+
+    /**
+     * 去掉低 48 位与前面某个种子相同的种子，保持首次出现的顺序
+     */
+    static long[] dedupeSeeds(long[] seeds, SearchOptions options) {
+        long mask = (1L << 48) - 1;
+        Map<Long, Long> firstByLow48 = new LinkedHashMap<>();
+        for (long seed : seeds) {
+            Long first = firstByLow48.putIfAbsent(seed & mask, seed);
+            if (first != null) {
+                options.log().printf("种子 %d 与 %d 的低 48 位相同，结果一致，跳过\n", seed, first);
+            }
+        }
+        long[] unique = new long[firstByLow48.size()];
+        int i = 0;
+        for (long seed : firstByLow48.values()) unique[i++] = seed;
+        return unique;
+    }
+
+    private static SearchHandle newHandle(int searchRadius, SearchOptions options) {
+        long sideLength = 2L * searchRadius + 1;
+        return new SearchHandle(new ProgressTracker(sideLength * sideLength, options));
+    }
+
+    /**
+     * 合并第 k 个掩码下断点恢复的候选点与各线程当前的局部 topN
+     * 逐个锁住 Worker，拿到的是它最近一个完成单元之后的状态
+     * @return 由好到差排序的前 topN 个点
+     */
+    private static List<SimplePoint> collectCandidates(Queue<Worker> workers, int k, List<SimplePoint> restored,
+                                                       int topN) {
+        TopNCollector merged = new TopNCollector(topN);
+        for (SimplePoint p : restored) merged.offer(p.x, p.z, p.score);
+        for (Worker worker : workers) {
+            synchronized (worker) {
+                merged.addAll(worker.tops[k]);
+            }
+        }
+        List<SimplePoint> list = merged.toList();
+        list.sort(WORST_FIRST.reversed());
+        return list;
+    }
+
+    private static void saveCheckpoint(SearchCheckpoint checkpoint, Queue<Worker> workers,
+                                       List<List<SimplePoint>> restored, int topN) {
+        // 必须先快照完成位图，再收集候选点
+        long[] doneWords = checkpoint.snapshotDone();
+        List<List<SimplePoint>> candidates = new ArrayList<>(restored.size());
+        for (int k = 0; k < restored.size(); k++) {
+            candidates.add(collectCandidates(workers, k, restored.get(k), topN));
+        }
+        try {
+            checkpoint.save(doneWords, candidates);
+        } catch (IOException e) {
+            System.err.println("\n保存断点失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 未配置断点文件时返回 null
+     * 配置了 resume 但断点无法使用时从头开始，并在之后覆盖旧断点
+     */
+    private static SearchCheckpoint openCheckpoint(SearchOptions options, SearchGrid grid, long worldSeed,
+                                                   int centerChunkX, int centerChunkZ, int searchRadius,
+                                                   AfkMask[] masks, int topN) {
+        if (options.checkpointFile() == null) return null;
+        long fingerprint = 0;
+        for (AfkMask mask : masks) fingerprint = 31 * fingerprint + mask.fingerprint();
+        long[] key = SearchCheckpoint.keyOf(worldSeed, centerChunkX, centerChunkZ, searchRadius, fingerprint,
+                grid.unitSize, topN);
+        if (options.resume()) {
+            try {
+                SearchCheckpoint checkpoint = SearchCheckpoint.resume(options.checkpointFile(), key, grid.unitCount(),
+                        masks.length);
+                options.log().printf("从断点恢复，已完成 %d/%d 个工作单元\n", checkpoint.doneCount(), grid.unitCount());
+                return checkpoint;
+            } catch (IOException e) {
+                System.err.println("无法从断点恢复，将重新开始: " + e.getMessage());
+            }
+        }
+        return SearchCheckpoint.create(options.checkpointFile(), key, grid.unitCount(), masks.length);
+    }
+
+    /**
+     * 打开（必要时生成）覆盖整个搜索区域及掩码边框的位图缓存
+     * 四周各留 r + 1 格：SlimeSlider 的窗口为 2r+1 宽，且从首行的上一格出发
+     * @return 未配置缓存或缓存不可用时返回 null，退回实时计算
+     */
+    private static SlimeBitmapCache openCache(SearchOptions options, SearchGrid grid, long worldSeed,
+                                              int slimeRadius, int threadCount) {
+        if (options.bitmapCacheDir() == null) return null;
+        int margin = slimeRadius + 1;
+        int size = grid.sideLength + 2 * margin;
+        try {
+            long t0 = System.currentTimeMillis();
+            SlimeBitmapCache cache = SlimeBitmapCache.openOrBuild(options.bitmapCacheDir(), worldSeed,
+                    grid.startX - margin, grid.firstZ - margin, size, size, threadCount);
+            options.log().println("位图缓存就绪，耗时: " + (System.currentTimeMillis() - t0) / 1000D + "s");
+            return cache;
+        } catch (IOException e) {
+            System.err.println("位图缓存不可用，改为实时计算: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 未配置热力图目录时返回 null；无法创建输出文件时打印错误并返回 null，搜索照常进行
+     */
+    private static ScorePyramid openPyramid(SearchOptions options, SearchGrid grid, long worldSeed, AfkMask[] masks,
+                                            SearchCheckpoint checkpoint) {
+        if (options.heatmapDir() == null) return null;
+        if (masks.length > 1) options.log().println("热力图只记录第一个掩码 " + masks[0]);
+        if (options.prune()) options.log().println("输出热力图需要所有中心点的得分，本次搜索不剪枝");
+        if (checkpoint != null && checkpoint.doneCount() > 0) {
+            options.log().println("热力图只包含本次计算的工作单元，断点中已完成的部分为 0");
+        }
+        try {
+            return ScorePyramid.create(options.heatmapDir(), grid, worldSeed, masks[0], options.heatmapLevels());
+        } catch (IOException e) {
+            System.err.println("无法创建热力图输出: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 计分掩码，未指定时为半径 slimeRadius 的圆；窗口、位图缓存边框、结果视图都按掩码半径计算
+     */
+    private static AfkMask maskFor(SearchOptions options, int slimeRadius) {
+        return options.mask() != null ? options.mask() : AfkMask.circle(slimeRadius);
+    }
+
+    private static int maxRadius(AfkMask[] masks) {
+        int r = 0;
+        for (AfkMask mask : masks) r = Math.max(r, mask.radius());
+        return r;
+    }
+
+    /**
+     * 工作单元边长
+     * SLIDER 每个单元要先填满 (2r+1)² 的窗口，单元边长至少取直径的 8 倍，使预热开销可以忽略
+     */
+    static int unitSizeFor(Engine engine, int slimeRadius) {
+        if (engine != Engine.SLIDER) return TILE_SIZE;
+        return Math.max(TILE_SIZE, 8 * (2 * slimeRadius + 1));
+    }
+
+    // options 指定了 unitSize 时使用指定值，否则按引擎取默认值
+    static int unitSizeFor(SearchOptions options, int slimeRadius) {
+        return options.unitSize() > 0 ? options.unitSize() : unitSizeFor(options.engine(), slimeRadius);
+    }
+
+    /**
+     * 按 order 给出的顺序处理单元：threadCount 个任务从同一个计数器依次领取下一个单元，
+     * 任意时刻已开始的单元都是 order 的一个前缀，提前停止时留下的正是排在最后的那些单元
+     * UnitRangeTask 的二分窃取会让空闲线程先拿走区间后半，不能保证这种顺序
+     * @param stop 每个单元开始前检查一次，返回 true 后不再领取新单元
+     */
+    private static void runInOrder(ForkJoinPool pool, int threadCount, long[] order, BooleanSupplier stop,
+                                   LongConsumer action) {
+        AtomicInteger next = new AtomicInteger();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            tasks.add(pool.submit(() -> {
+                int i;
+                while (!stop.getAsBoolean() && (i = next.getAndIncrement()) < order.length) action.accept(order[i]);
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) task.join();
+    }
+
+    /**
+     * 对单元区间 [from, to) 递归二分，直到只剩一个单元
+     * 空闲线程从其他线程的双端队列尾部窃取尚未拆分的大区间，末尾不会只剩一条慢条带
+     * 提前停止的检查只在这里进行：每个单元开始前一次，停止后整段区间不再拆分，计算循环内没有任何额外判断
+     */
+    private static final class UnitRangeTask extends RecursiveAction {
+        // ForkJoinTask 实现了 Serializable，任务只在本进程内执行，不会被序列化
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+        // 返回 true 时跳过剩余单元，为 null 时不会提前停止
+        private final transient BooleanSupplier stop;
+        // 处理单个单元，在执行该单元的工作线程上调用
+        private final transient LongConsumer action;
+
+        UnitRangeTask(long from, long to, BooleanSupplier stop, LongConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.stop = stop;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (stop != null && stop.getAsBoolean()) return;
+            if (to - from <= 1) {
+                if (to > from) action.accept(from);
+                return;
+            }
+            long mid = (from + to) >>> 1;
+            invokeAll(new UnitRangeTask(from, mid, stop, action), new UnitRangeTask(mid, to, stop, action));
+        }
+    }
+
+    /**
+     * 批量搜索中单个工作线程的状态：在种子之间复用的计分器、一份指标，以及每个种子各自的 Worker
+     * Worker 在该线程第一次处理某个种子时创建，只被本线程访问
+     */
+    private static final class BatchThread {
+        final SearchContext[] contexts;
+        final TileScorer tileScorer;
+        final BitSliceScorer bitSliceScorer;
+        final SearchMetrics.WorkerMetrics metrics;
+        final Worker[] workers;
+
+        BatchThread(SearchContext[] contexts, SearchMetrics.WorkerMetrics metrics) {
+            SearchContext first = contexts[0];
+            this.contexts = contexts;
+            this.metrics = metrics;
+            this.tileScorer = (first.engine == Engine.TILE)
+                    ? new TileScorer(first.worldSeed, first.masks, first.unitSize, first.unitSize, null) : null;
+            this.bitSliceScorer = (first.engine == Engine.BITSLICE)
+                    ? new BitSliceScorer(first.worldSeed, first.masks, first.unitSize, first.unitSize, null) : null;
+            this.workers = new Worker[contexts.length];
+        }
+
+        Worker worker(int seedIndex) {
+            Worker w = workers[seedIndex];
+            if (w == null) {
+                w = new Worker(contexts[seedIndex], tileScorer, bitSliceScorer, metrics);
+                workers[seedIndex] = w;
+            }
+            return w;
+        }
+    }
+
+    /**
+     * 增量输出用的全局 topN：进入局部堆的点再尝试进入这里，成功即写给 sink
+     * 只有通过入堆门槛的点才会走到这把锁，门槛升高后几乎没有争用
+     */
+    private static final class LiveTop {
+        private final long seed;
+        private final int slimeRadius;
+        private final ResultSink sink;
+        private final TopNCollector top;
+
+        private LiveTop(long seed, int slimeRadius, ResultSink sink, int topN) {
+            this.seed = seed;
+            this.slimeRadius = slimeRadius;
+            this.sink = sink;
+            this.top = new TopNCollector(topN);
+        }
+
+        // 每个掩码一个；未配置 sink 或未开启增量输出时返回 null
+        static LiveTop[] of(SearchOptions options, long seed, AfkMask[] masks, int topN) {
+            if (options.resultSink() == null || !options.emitCandidates()) return null;
+            LiveTop[] live = new LiveTop[masks.length];
+            for (int k = 0; k < masks.length; k++) {
+                live[k] = new LiveTop(seed, masks[k].radius(), options.resultSink(), topN);
+            }
+            return live;
+        }
+
+        synchronized void offer(int x, int z, int score) {
+            if (top.offer(x, z, score)) sink.candidate(seed, slimeRadius, x, z, score);
+        }
+    }
+
+    /**
+     * 一次搜索中所有 Worker 共享的参数与状态
+     * @param masks 计分掩码，每个掩码各自一份 topN、门槛与增量输出
+     * @param thresholds 每个掩码的全局入堆门槛：某个局部堆已满时，得分低于其堆顶的点不可能进入全局 topN，
+     *                   各线程把自己的堆顶得分单调地发布到这里，其余线程据此提前拒绝候选点、剪枝
+     * @param live 每个掩码的增量输出，为 null 时不输出
+     * @param targetScore 目标分数，0 表示不设目标；任一掩码出现不低于它的点时置位 targetReached
+     * @param pyramid 第一个掩码的得分金字塔，为 null 时不记录
+     */
+    private record SearchContext(Engine engine, long worldSeed, AfkMask[] masks, int unitSize, int topN,
+                                 LongAdder completedSteps, SlimeBitmapCache cache, SearchCheckpoint checkpoint,
+                                 boolean prune, AtomicIntegerArray thresholds, LiveTop[] live,
+                                 int targetScore, AtomicBoolean targetReached, ScorePyramid pyramid) {
+
+        // 只升不降；已不低于 score 时不做任何写操作
+        void publishThreshold(int k, int score) {
+            if (score > thresholds.get(k)) thresholds.accumulateAndGet(k, score, Math::max);
+        }
+
+        // 达到目标分数的点必然进入局部堆（否则已有更高分的点先达到目标），只需在入堆时检查
+        void noteScore(int score) {
+            if (targetScore > 0 && score >= targetScore && !targetReached.get()) targetReached.set(true);
+        }
+    }
+
+    /**
+     * 单个工作线程在一个种子上的状态：每个掩码一个局部 topN 堆，以及按引擎复用的计分器
+     * 每个单元在自身的锁内计算，保存断点时看到的堆不会处于单元中途
+     */
+    private static final class Worker {
+        final TopNCollector[] tops;
+        final TileScorer tileScorer;
+        final BitSliceScorer bitSliceScorer;
+        private final SearchContext ctx;
+        private final SearchMetrics.WorkerMetrics metrics;
+
+        // 当前单元的指标，单元结束时一次性累加到 metrics
+        private long unitChunks;
+        private long unitCentres;
+        private long unitAdmissions;
+        private long unitFillNanos;
+        private long unitShiftNanos;
+        private long unitCountNanos;
+
+        // 每个掩码当前的入堆门槛，以及传给 TileScorer 的剪枝门槛
+        private final int[] thresholds;
+        private final int[] pruneScores;
+
+        // 记录热力图时的写入器，以及 SLIDER 引擎逐点收集的第一个掩码的得分
+        private final ScorePyramid.Writer pyramidWriter;
+        private final int[] sliderScores;
+
+        /**
+         * @param tileScorer TILE 引擎的计分器，批量搜索时同一线程的各个 Worker 共用一个；其他引擎为 null
+         * @param bitSliceScorer BITSLICE 引擎的计分器，共用方式同 tileScorer；其他引擎为 null
+         * @param metrics 所在线程的指标，批量搜索时同一线程的各个 Worker 共用一份
+         */
+        Worker(SearchContext ctx, TileScorer tileScorer, BitSliceScorer bitSliceScorer,
+               SearchMetrics.WorkerMetrics metrics) {
+            this.ctx = ctx;
+            this.tops = new TopNCollector[ctx.masks.length];
+            for (int k = 0; k < tops.length; k++) tops[k] = new TopNCollector(ctx.topN);
+            this.tileScorer = tileScorer;
+            this.bitSliceScorer = bitSliceScorer;
+            this.metrics = metrics;
+            this.thresholds = new int[tops.length];
+            this.pruneScores = new int[tops.length];
+            this.pyramidWriter = (ctx.pyramid != null) ? ctx.pyramid.newWriter() : null;
+            this.sliderScores = (ctx.pyramid != null && ctx.engine == Engine.SLIDER)
+                    ? new int[ctx.unitSize * ctx.unitSize] : null;
+            if (ctx.pyramid != null && bitSliceScorer != null) bitSliceScorer.setRecordScores(true);
+        }
+
+        synchronized void scoreUnit(SearchGrid grid, long unit) {
+            int x0 = grid.unitX0(unit);
+            int z0 = grid.unitZ0(unit);
+            int w = grid.unitWidth(unit);
+            int h = grid.unitHeight(unit);
+            UnitScoredEvent event = new UnitScoredEvent();
+            event.begin();
+            unitAdmissions = 0;
+            if (ctx.engine == Engine.TILE) {
+                scoreTile(x0, z0, w, h);
+            } else if (ctx.engine == Engine.BITSLICE) {
+                scoreBitSlice(x0, z0, w, h);
+            } else {
+                scoreWithSlider(x0, z0, w, h);
+            }
+            if (pyramidWriter != null) pyramidWriter.record(x0, z0, w, h, unitScores());
+            if (ctx.checkpoint != null) ctx.checkpoint.markDone(unit);
+            ctx.completedSteps.add((long) w * h);
+
+            metrics.addUnit(unitChunks, unitCentres, unitAdmissions, unitFillNanos, unitShiftNanos, unitCountNanos);
+            event.end();
+            if (event.shouldCommit()) {
+                event.engine = ctx.engine.name();
+                event.seed = ctx.worldSeed;
+                event.x0 = x0;
+                event.z0 = z0;
+                event.width = w;
+                event.height = h;
+                event.chunksHashed = unitChunks;
+                event.centresScored = unitCentres;
+                event.admissions = unitAdmissions;
+                event.fillNanos = unitFillNanos;
+                event.shiftNanos = unitShiftNanos;
+                event.countNanos = unitCountNanos;
+                event.commit();
+            }
+        }
+
+        // 刚算完的单元中第一个掩码的全部得分，scores[dz * w + dx]
+        private int[] unitScores() {
+            if (ctx.engine == Engine.TILE) return tileScorer.getScores(0);
+            if (ctx.engine == Engine.BITSLICE) return bitSliceScorer.getScores(0);
+            return sliderScores;
+        }
+
+        /**
+         * 第 k 个掩码当前的入堆门槛：得分低于它的点不必入堆（至少为 1，得分为 0 的点不记录）
+         * 同分的点仍可能因坐标更小而入堆，所以门槛本身可以取等
+         */
+        private int admissionThreshold(int k) {
+            TopNCollector top = tops[k];
+            int local = top.isFull() ? top.minScore() : 1;
+            return Math.max(local, ctx.thresholds.get(k));
+        }
+
+        private void admit(int k, int x, int z, int score) {
+            TopNCollector top = tops[k];
+            if (!top.offer(x, z, score)) return;
+            unitAdmissions++;
+            ctx.noteScore(score);
+            if (top.isFull()) ctx.publishThreshold(k, top.minScore());
+            if (ctx.live != null) ctx.live[k].offer(x, z, score);
+        }
+
+        // 滑块从 z0 - 1 出发，首步下移后第一个得分正好落在 z0
+        private void scoreWithSlider(int x0, int z0, int w, int h) {
+            SlimeSlider slider = new SlimeSlider(x0, z0 - 1, h, ctx.masks, ctx.worldSeed,
+                    SlimeSlider.ScoreMode.INCREMENTAL, ctx.cache);
+            int maskCount = thresholds.length;
+            for (int k = 0; k < maskCount; k++) thresholds[k] = admissionThreshold(k);
+            long steps = (long) w * h;
+            for (long s = 0; s < steps; s++) {
+                slider.slideNext();
+                if (sliderScores != null) {
+                    sliderScores[(slider.getCentreZ() - z0) * w + (slider.getCentreX() - x0)] = slider.getScore(0);
+                }
+                for (int k = 0; k < maskCount; k++) {
+                    int score = slider.getScore(k);
+                    if (score >= thresholds[k]) {
+                        admit(k, slider.getCentreX(), slider.getCentreZ(), score);
+                        thresholds[k] = admissionThreshold(k);
+                    }
+                }
+            }
+            unitChunks = slider.getChunksHashed();
+            unitCentres = steps * maskCount;
+            unitFillNanos = slider.getFillNanos();
+            unitShiftNanos = slider.getShiftNanos();
+            unitCountNanos = slider.getCountNanos();
+        }
+
+        private void scoreTile(int x0, int z0, int w, int h) {
+            int maskCount = thresholds.length;
+            for (int k = 0; k < maskCount; k++) {
+                thresholds[k] = admissionThreshold(k);
+                pruneScores[k] = ctx.prune ? thresholds[k] : 0;
+            }
+            tileScorer.setSeed(ctx.worldSeed);
+            long chunks = tileScorer.getChunksHashed();
+            long pruned = tileScorer.getPrunedCentres();
+            long fill = tileScorer.getFillNanos();
+            long count = tileScorer.getScoreNanos();
+            tileScorer.scoreTile(x0, z0, w, h, pruneScores);
+            unitChunks = tileScorer.getChunksHashed() - chunks;
+            unitCentres = (long) w * h * maskCount - (tileScorer.getPrunedCentres() - pruned);
+            unitFillNanos = tileScorer.getFillNanos() - fill;
+            unitShiftNanos = 0;
+            unitCountNanos = tileScorer.getScoreNanos() - count;
+            for (int k = 0; k < maskCount; k++) {
+                int[] scores = tileScorer.getScores(k);
+                int threshold = thresholds[k];
+                for (int dz = 0; dz < h; dz++) {
+                    for (int dx = 0; dx < w; dx++) {
+                        int score = scores[dz * w + dx];
+                        if (score >= threshold) {
+                            admit(k, x0 + dx, z0 + dz, score);
+                            threshold = admissionThreshold(k);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void scoreBitSlice(int x0, int z0, int w, int h) {
+            int maskCount = thresholds.length;
+            for (int k = 0; k < maskCount; k++) thresholds[k] = admissionThreshold(k);
+            bitSliceScorer.setSeed(ctx.worldSeed);
+            long chunks = bitSliceScorer.getChunksHashed();
+            long fill = bitSliceScorer.getFillNanos();
+            long count = bitSliceScorer.getScoreNanos();
+            bitSliceScorer.scoreTile(x0, z0, w, h, thresholds, (k, x, z, score) -> {
+                admit(k, x, z, score);
+                return admissionThreshold(k);
+            });
+            unitChunks = bitSliceScorer.getChunksHashed() - chunks;
+            unitCentres = (long) w * h * maskCount;
+            unitFillNanos = bitSliceScorer.getFillNanos() - fill;
+            unitShiftNanos = 0;
+            unitCountNanos = bitSliceScorer.getScoreNanos() - count;
         }
-        return new SearchResult(p.x, p.z, p.score, m.toString());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,185 @@
+package io.github.cacezhou.slimefinder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * 启动时的性能校准：在配置的中心附近做几轮限时试搜，按实测吞吐量（每秒计算的中心点数）
+ * 依次选出计分引擎、线程数与工作单元边长
+ *
+ * 试搜直接调用 AsyncSlimeFinder.startSearch 并设置时间预算，测到的是包括线程调度在内的端到端吞吐量；
+ * 三项参数逐项确定而不是穷举组合，总共十几轮试搜
+ * 结果可以保存为 Properties 格式的档案文件，处理器数与掩码不变时下次启动直接读取
+ */
+final class AutoTuner {
+    static final long DEFAULT_TRIAL_MILLIS = 500;
+    // 吞吐量相差不超过该比例时选用较少的线程，给机器上的其他程序留出余量
+    private static final double THREAD_TOLERANCE = 0.03;
+    // 试搜区域的半径，时间预算内远远算不完，只用来保证有足够多的工作单元
+    private static final int TRIAL_RADIUS = 20000;
+    private static final int MAX_UNIT_SIZE = 1024;
+
+    /**
+     * 校准结果
+     * @param centresPerSecond 试搜时测得的吞吐量，只用于显示
+     */
+    record Profile(AsyncSlimeFinder.Engine engine, int threads, int unitSize, double centresPerSecond) {
+        @Override
+        public String toString() {
+            return String.format("引擎 %s，线程数 %d，工作单元边长 %d，约 %.1f 万中心点/秒",
+                    engine.name().toLowerCase(), threads, unitSize, centresPerSecond / 10000);
+        }
+    }
+
+    private final long seed;
+    private final int centerX;
+    private final int centerZ;
+    private final AfkMask mask;
+    private final boolean prune;
+    private final long trialMillis;
+
+    /**
+     * @param prune 正式搜索是否剪枝，TILE 引擎的试搜与之保持一致
+     * @param trialMillis 每轮试搜的时间预算
+     */
+    AutoTuner(long seed, int centerX, int centerZ, AfkMask mask, boolean prune, long trialMillis) {
+        this.seed = seed;
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.mask = mask;
+        this.prune = prune;
+        this.trialMillis = trialMillis;
+    }
+
+    /**
+     * 逐项校准，每轮结果打印到 System.out；试搜以 quiet 模式运行，不打印搜索本身的提示信息
+     * @param maxThreads 线程数上限，通常为处理器数
+     */
+    Profile tune(int maxThreads) {
+        // 1. 引擎：线程数取上限，单元边长取引擎默认值；每个引擎先空跑一轮让 JIT 编译热点代码
+        AsyncSlimeFinder.Engine engine = null;
+        double best = -1;
+        for (AsyncSlimeFinder.Engine candidate : AsyncSlimeFinder.Engine.values()) {
+            int unitSize = AsyncSlimeFinder.unitSizeFor(candidate, mask.radius());
+            trial(candidate, maxThreads, unitSize);
+            double rate = trial(candidate, maxThreads, unitSize);
+            report(candidate, maxThreads, unitSize, rate);
+            if (rate > best) {
+                best = rate;
+                engine = candidate;
+            }
+        }
+
+        // 2. 线程数：2 的幂、上限的一半（超线程机器上通常是物理核数）与上限本身
+        int unitSize = AsyncSlimeFinder.unitSizeFor(engine, mask.radius());
+        TreeSet<Integer> threadCandidates = new TreeSet<>();
+        for (int t = 1; t < maxThreads; t <<= 1) threadCandidates.add(t);
+        threadCandidates.add(Math.max(1, maxThreads / 2));
+        threadCandidates.add(maxThreads);
+        double[] rates = new double[maxThreads + 1];
+        for (int t : threadCandidates) {
+            rates[t] = (t == maxThreads) ? best : trial(engine, t, unitSize);
+            if (t != maxThreads) report(engine, t, unitSize, rates[t]);
+            best = Math.max(best, rates[t]);
+        }
+        int threads = maxThreads;
+        for (int t : threadCandidates) {
+            if (rates[t] >= best * (1 - THREAD_TOLERANCE)) {
+                threads = t;
+                break;
+            }
+        }
+        best = rates[threads];
+
+        // 3. 单元边长：默认值的 1/2、2 倍、4 倍；变大后吞吐量下降就不再继续
+        // SLIDER 每个单元要预热整个窗口，边长不小于窗口的 2 倍
+        int defaultUnit = unitSize;
+        int minUnit = (engine == AsyncSlimeFinder.Engine.SLIDER) ? 2 * (2 * mask.radius() + 1) : 1;
+        if (defaultUnit / 2 >= minUnit) {
+            double rate = trial(engine, threads, defaultUnit / 2);
+            report(engine, threads, defaultUnit / 2, rate);
+            if (rate > best) {
+                best = rate;
+                unitSize = defaultUnit / 2;
+            }
+        }
+        int maxUnit = Math.min(4 * defaultUnit, MAX_UNIT_SIZE);
+        for (int size = 2 * defaultUnit; size <= maxUnit; size *= 2) {
+            double rate = trial(engine, threads, size);
+            report(engine, threads, size, rate);
+            if (rate <= best) break;
+            best = rate;
+            unitSize = size;
+        }
+        return new Profile(engine, threads, unitSize, best);
+    }
+
+    // 一轮限时试搜，返回每秒完成的中心点数
+    private double trial(AsyncSlimeFinder.Engine engine, int threads, int unitSize) {
+        SearchOptions options = new SearchOptions()
+                .engine(engine)
+                .unitSize(unitSize)
+                .mask(mask)
+                .prune(prune && engine == AsyncSlimeFinder.Engine.TILE)
+                .timeBudgetMillis(trialMillis)
+                .quiet(true);
+        SearchHandle handle = AsyncSlimeFinder.startSearch(seed, centerX, centerZ, TRIAL_RADIUS, mask.radius(),
+                threads, 1, options);
+        handle.result().join();
+        SearchProgress progress = handle.progress();
+        return progress.completed() * 1000.0 / Math.max(1, progress.elapsedMillis());
+    }
+
+    private static void report(AsyncSlimeFinder.Engine engine, int threads, int unitSize, double rate) {
+        System.out.printf("[调优] %-8s 线程 %3d | 单元 %4d | %.1f 万中心点/秒\n",
+                engine.name().toLowerCase(), threads, unitSize, rate / 10000);
+    }
+
+    /**
+     * 读取档案，文件不存在、内容不完整或超出范围，或是在处理器数不同的机器上、用不同的掩码校准的，都返回 null
+     * @throws IOException 文件存在但无法读取
+     */
+    static Profile load(Path file, AfkMask mask, int processors) throws IOException {
+        if (!Files.exists(file)) return null;
+        Properties props = new Properties();
+        try (InputStream input = Files.newInputStream(file)) {
+            props.load(input);
+        }
+        if (!mask.toString().equals(props.getProperty("mask"))
+                || !String.valueOf(processors).equals(props.getProperty("processors"))) {
+            return null;
+        }
+        try {
+            int threads = Integer.parseInt(props.getProperty("threadCount", "").trim());
+            int unitSize = Integer.parseInt(props.getProperty("unitSize", "").trim());
+            if (threads < 1 || threads > processors) return null;
+            if (unitSize < 1 || unitSize > SearchOptions.MAX_UNIT_SIZE) return null;
+            return new Profile(
+                    AsyncSlimeFinder.Engine.valueOf(props.getProperty("engine", "").toUpperCase()),
+                    threads,
+                    unitSize,
+                    Double.parseDouble(props.getProperty("throughput", "0").trim()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static void save(Path file, Profile profile, AfkMask mask, int processors) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("engine", profile.engine().name().toLowerCase());
+        props.setProperty("threadCount", String.valueOf(profile.threads()));
+        props.setProperty("unitSize", String.valueOf(profile.unitSize()));
+        props.setProperty("throughput", String.valueOf((long) profile.centresPerSecond()));
+        props.setProperty("mask", mask.toString());
+        props.setProperty("processors", String.valueOf(processors));
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (OutputStream output = Files.newOutputStream(file)) {
+            props.store(output, "SlimeFinderR auto-tune profile");
+        }
+    }
+}
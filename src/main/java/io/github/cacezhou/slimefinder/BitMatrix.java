@@ -7,14 +7,20 @@ public class BitMatrix {
     public final int rows_count;
     public final int cols_count;
     private final int longPerRow; // 每一行需要多少个 long
+    private final int physicalCols; // 每一行的物理列数 longPerRow * 64，多出 cols_count 的是空闲列
 
     // 逻辑首行在物理数组中的索引 (0 ~ rows_count-1)
     private int headRowIndex = 0;
 
+    // 逻辑首列在物理行中的位置 (0 ~ physicalCols-1)，列与行一样是环形的
+    // 不属于逻辑范围的空闲列始终为 0，按字运算时不必额外屏蔽
+    private int headColIndex = 0;
+
     private BitMatrix(int rows_count, int cols_count) {
         this.rows_count = rows_count;
         this.cols_count = cols_count;
         this.longPerRow = (cols_count + 63) >>> 6;
+        this.physicalCols = this.longPerRow << 6;
         this.data = new long[this.rows_count * this.longPerRow];
     }
 
@@ -34,6 +40,13 @@ public class BitMatrix {
         return idx;
     }
 
+    // 将逻辑列号映射为物理列号，与行相同的环形加法
+    private int getPhysicalCol(int logicalCol) {
+        int idx = headColIndex + logicalCol;
+        if (idx >= physicalCols) idx -= physicalCols;
+        return idx;
+    }
+
     /**
      * 向下位移 delta 行 (负数则向上)
      * 极速模式：不再复制数组，而是移动头指针并清零失效数据
@@ -94,67 +107,77 @@ public class BitMatrix {
 
 
     /**
-     * 向右位移
+     * 向右位移 delta 列 (负数则向左)
+     * 与 shiftVertical 相同，只移动首列指针，并清零移出的列，耗时与移出的列数成正比，不再改写每个字
      */
     public void shiftHorizontal(int delta) {
         if (delta == 0) return;
         if (Math.abs(delta) >= cols_count) {
             Arrays.fill(data, 0L); // 全清不影响 headRowIndex
+            headColIndex = 0;
             return;
         }
 
-        int wordShift = delta >> 6;
-        int bitShift = delta & 63;
-
-        // 直接遍历物理内存，顺序不重要
         if (delta > 0) {
-            shiftRightInternal(wordShift, bitShift);
+            // 逻辑最右 delta 列移出，清零后成为空闲列；首列指针左移，新的逻辑首列来自空闲列，本来就是 0
+            clearPhysicalCols(getPhysicalCol(cols_count - delta), delta);
+            headColIndex -= delta;
+            if (headColIndex < 0) headColIndex += physicalCols;
         } else {
-            shiftLeftInternal(-wordShift, -bitShift);
+            // 逻辑最左 |delta| 列移出，清零后首列指针右移，新的逻辑末列来自空闲列或刚清零的列
+            int absDelta = -delta;
+            clearPhysicalCols(headColIndex, absDelta);
+            headColIndex += absDelta;
+            if (headColIndex >= physicalCols) headColIndex -= physicalCols;
         }
-        cleanTailPadding();
     }
 
-    // 内部实现保持原样，直接操作 data 数组
-    private void shiftRightInternal(int wordShift, int bitShift) {
-        int invBitShift = 64 - bitShift;
+    // 辅助：将每一行物理列 [start, start + count) 清零，超出行尾的部分绕回行首
+    private void clearPhysicalCols(int start, int count) {
+        int end = start + count;
+        if (end > physicalCols) {
+            clearPhysicalCols(start, physicalCols - start);
+            clearPhysicalCols(0, end - physicalCols);
+            return;
+        }
+        int firstWord = start >> 6;
+        int lastWord = (end - 1) >> 6;
+        long firstMask = -1L << (start & 63);
+        long lastMask = -1L >>> (63 - ((end - 1) & 63));
         for (int r = 0; r < rows_count; r++) {
             int rowStart = r * longPerRow;
-            int rowEnd = rowStart + longPerRow;
-            for (int i = rowEnd - 1; i >= rowStart; i--) {
-                long res = 0;
-                int srcIdx = i - wordShift;
-                if (srcIdx >= rowStart) res |= (data[srcIdx] << bitShift);
-                int lowerIdx = srcIdx - 1;
-                if (bitShift > 0 && lowerIdx >= rowStart) res |= (data[lowerIdx] >>> invBitShift);
-                data[i] = res;
+            if (firstWord == lastWord) {
+                data[rowStart + firstWord] &= ~(firstMask & lastMask);
+            } else {
+                data[rowStart + firstWord] &= ~firstMask;
+                Arrays.fill(data, rowStart + firstWord + 1, rowStart + lastWord, 0L);
+                data[rowStart + lastWord] &= ~lastMask;
             }
         }
     }
 
-    private void shiftLeftInternal(int wordShift, int bitShift) {
-        int invBitShift = 64 - bitShift;
-        for (int r = 0; r < rows_count; r++) {
-            int rowStart = r * longPerRow;
-            int rowEnd = rowStart + longPerRow;
-            for (int i = rowStart; i < rowEnd; i++) {
-                long res = 0;
-                int srcIdx = i + wordShift;
-                if (srcIdx < rowEnd) res |= (data[srcIdx] >>> bitShift);
-                int upperIdx = srcIdx + 1;
-                if (bitShift > 0 && upperIdx < rowEnd) res |= (data[upperIdx] << invBitShift);
-                data[i] = res;
-            }
+    /**
+     * 把列环转回首列在物理第 0 列的状态，逻辑内容不变
+     * 两个矩阵首列位置不同时，逐字运算之前需要先对齐
+     */
+    private void normalizeColumns() {
+        if (headColIndex == 0) return;
+        long[] row = new long[longPerRow];
+        for (int p = 0; p < rows_count; p++) {
+            int rowStart = p * longPerRow;
+            for (int k = 0; k < longPerRow; k++) row[k] = rowWord(rowStart, k << 6);
+            System.arraycopy(row, 0, data, rowStart, longPerRow);
         }
+        headColIndex = 0;
     }
 
-
     public void set(int row, int col, boolean val) {
         if (row < 0 || row >= rows_count || col < 0 || col >= cols_count) throw new IndexOutOfBoundsException();
 
         int pRow = getPhysicalRow(row); // 映射到物理行
-        int wordIdx = (pRow * longPerRow) + (col >> 6);
-        int bitIdx = col & 63;
+        int pCol = getPhysicalCol(col); // 映射到物理列
+        int wordIdx = (pRow * longPerRow) + (pCol >> 6);
+        int bitIdx = pCol & 63;
 
         if (val) data[wordIdx] |= (1L << bitIdx);
         else     data[wordIdx] &= ~(1L << bitIdx);
@@ -164,9 +187,83 @@ public class BitMatrix {
         if (row < 0 || row >= rows_count || col < 0 || col >= cols_count) throw new IndexOutOfBoundsException();
 
         int pRow = getPhysicalRow(row); // 映射到物理行
-        int wordIdx = (pRow * longPerRow) + (col >> 6);
+        int pCol = getPhysicalCol(col); // 映射到物理列
+        int wordIdx = (pRow * longPerRow) + (pCol >> 6);
+
+        return ((data[wordIdx] >>> (pCol & 63)) & 1L) == 1;
+    }
+
+    /**
+     * 覆盖逻辑行 row 的第 wordIdx 个 long（第 wordIdx * 64 ~ wordIdx * 64 + 63 列），不做边界检查
+     * 调用方需保证超出列数的位为 0；列环不在字边界上时这 64 位跨两个物理字
+     */
+    void setWord(int row, int wordIdx, long value) {
+        int rowStart = getPhysicalRow(row) * longPerRow;
+        int pCol = getPhysicalCol(wordIdx << 6);
+        int word = pCol >> 6;
+        int shift = pCol & 63;
+        if (shift == 0) {
+            data[rowStart + word] = value;
+            return;
+        }
+        int next = (word + 1 == longPerRow) ? 0 : word + 1;
+        data[rowStart + word] = (data[rowStart + word] & ((1L << shift) - 1)) | (value << shift);
+        data[rowStart + next] = (data[rowStart + next] & (-1L << shift)) | (value >>> (64 - shift));
+    }
+
+    /**
+     * 用 bits[offset, offset + longPerRow) 整体覆盖逻辑行 row，第 c 列取 bits[offset + c / 64] 的第 c % 64 位
+     * 超出列数的位被忽略；与逐位 set 相比只做一次边界检查和行映射，首列在物理第 0 列时就是一次数组拷贝
+     */
+    public void setRowWords(int row, long[] bits, int offset) {
+        if (row < 0 || row >= rows_count) throw new IndexOutOfBoundsException();
+        int tailBits = cols_count & 63;
+        long tailMask = (tailBits == 0) ? -1L : (1L << tailBits) - 1;
+        if (headColIndex == 0) {
+            int rowStart = getPhysicalRow(row) * longPerRow;
+            System.arraycopy(bits, offset, data, rowStart, longPerRow);
+            data[rowStart + longPerRow - 1] &= tailMask;
+            return;
+        }
+        for (int k = 0; k < longPerRow - 1; k++) {
+            setWord(row, k, bits[offset + k]);
+        }
+        setWord(row, longPerRow - 1, bits[offset + longPerRow - 1] & tailMask);
+    }
 
-        return ((data[wordIdx] >>> (col & 63)) & 1L) == 1;
+    /**
+     * 整体覆盖逻辑列 col，第 r 行取 bits[offset + r / 64] 的第 r % 64 位
+     * 列映射只做一次，之后沿物理行顺序写入，不再逐位检查边界
+     */
+    public void setColumnWords(int col, long[] bits, int offset) {
+        if (col < 0 || col >= cols_count) throw new IndexOutOfBoundsException();
+        int pCol = getPhysicalCol(col);
+        int wordInRow = pCol >> 6;
+        int bitIdx = pCol & 63;
+        long clear = ~(1L << bitIdx);
+        int pRow = headRowIndex;
+        for (int r = 0; r < rows_count; r++) {
+            int wordIdx = pRow * longPerRow + wordInRow;
+            long bit = (bits[offset + (r >>> 6)] >>> (r & 63)) & 1L;
+            data[wordIdx] = (data[wordIdx] & clear) | (bit << bitIdx);
+            if (++pRow == rows_count) pRow = 0;
+        }
+    }
+
+    /**
+     * 统计若干 (row, col) 逻辑位置上为 1 的个数
+     * 不做边界检查，供滑动窗口增量计分使用
+     * @param rows 行坐标
+     * @param cols 列坐标，与 rows 一一对应
+     */
+    public int countSetAt(int[] rows, int[] cols) {
+        int count = 0;
+        for (int i = 0; i < rows.length; i++) {
+            int pCol = getPhysicalCol(cols[i]);
+            int wordIdx = (getPhysicalRow(rows[i]) * longPerRow) + (pCol >> 6);
+            count += (int) ((data[wordIdx] >>> (pCol & 63)) & 1L);
+        }
+        return count;
     }
 
     public int countOnes() {
@@ -180,14 +277,10 @@ public class BitMatrix {
     }
 
     private void cleanTailPadding() {
-        // 清理 padding 也与行序无关
-        int effectiveBits = cols_count & 63;
-        if (effectiveBits == 0) return;
-        long mask = (1L << effectiveBits) - 1;
-        for (int r = 0; r < rows_count; r++) {
-            int lastWordIdx = (r * longPerRow) + longPerRow - 1;
-            data[lastWordIdx] &= mask;
-        }
+        // 清理空闲列也与行序无关；首列在物理第 0 列时就是每行最后一个字的高位
+        int spare = physicalCols - cols_count;
+        if (spare == 0) return;
+        clearPhysicalCols(getPhysicalCol(cols_count), spare);
     }
 
 
@@ -196,6 +289,7 @@ public class BitMatrix {
      */
     public void intersect(BitMatrix other) {
         checkDim(other);
+        alignColumns(other);
 
         if (this.headRowIndex == 0 && other.headRowIndex == 0) {
             // 两个都没动过，或者刚好归零
@@ -229,6 +323,7 @@ public class BitMatrix {
 
     public void union(BitMatrix other) {
         checkDim(other);
+        alignColumns(other);
         if (this.headRowIndex == 0 && other.headRowIndex == 0) {
             for (int i = 0; i < data.length; i++) this.data[i] |= other.data[i];
         } else {
@@ -242,6 +337,7 @@ public class BitMatrix {
 
     public void xor(BitMatrix other) {
         checkDim(other);
+        alignColumns(other);
         if (this.headRowIndex == 0 && other.headRowIndex == 0) {
             for (int i = 0; i < data.length; i++) this.data[i] ^= other.data[i];
         } else {
@@ -259,6 +355,13 @@ public class BitMatrix {
         cleanTailPadding();
     }
 
+    // 首列位置相同时逐字运算直接对齐，否则把两者都转回首列在物理第 0 列（other 的逻辑内容不变）
+    private void alignColumns(BitMatrix other) {
+        if (this.headColIndex == other.headColIndex) return;
+        this.normalizeColumns();
+        other.normalizeColumns();
+    }
+
     private void checkDim(BitMatrix other) {
         if (this.rows_count != other.rows_count || this.cols_count != other.cols_count) {
             throw new IllegalArgumentException("Matrix dimensions must match.");
@@ -292,6 +395,18 @@ public class BitMatrix {
         long[] mapData = this.data;
         long[] spriteData = other.data; // 假设 mask 通常很小且是新建的，head=0，直接读 linear 即可
 
+        if (headColIndex != 0) {
+            // 列环不在物理第 0 列：逐字经 rowWord 绕回读取，超出列数的位按 0 计
+            for (int r = 0; r < checkRows; r++) {
+                int mapRowStart = getPhysicalRow(startRow + r) * this.longPerRow;
+                int spriteRowStart = r * other.longPerRow;
+                for (int i = 0; i < wordsToCheck; i++) {
+                    totalHits += Long.bitCount(rowWord(mapRowStart, startCol + (i << 6)) & spriteData[spriteRowStart + i]);
+                }
+            }
+            return totalHits;
+        }
+
         for (int r = 0; r < checkRows; r++) {
             // 获取当前逻辑行对应的物理行索引
             int currentPhysicalRow = getPhysicalRow(startRow + r);
@@ -323,6 +438,149 @@ public class BitMatrix {
         return totalHits;
     }
 
+    /**
+     * 从 (row, col) 起连续 64 个位，第 i 位为 (row, col + i)，超出列数的部分为 0
+     * 不检查行号
+     */
+    public long wordAt(int row, int col) {
+        return rowWord(getPhysicalRow(row) * longPerRow, col);
+    }
+
+    // 物理行 rowStart 中从逻辑列 col 起的 64 位；跨过行尾时绕回行首，行尾之后的位来自空闲列或被屏蔽
+    private long rowWord(int rowStart, int col) {
+        int remaining = cols_count - col;
+        if (remaining <= 0) return 0L;
+        int pCol = getPhysicalCol(col);
+        int wordIdx = pCol >> 6;
+        int shift = pCol & 63;
+        long val = data[rowStart + wordIdx] >>> shift;
+        if (shift != 0) {
+            int next = (wordIdx + 1 == longPerRow) ? 0 : wordIdx + 1;
+            val |= data[rowStart + next] << (64 - shift);
+        }
+        if (remaining < 64) val &= (1L << remaining) - 1;
+        return val;
+    }
+
+    /*
+     * 位切片计数：64 个计数器按位平面存放，planes[j] 的第 i 位是第 i 条通道计数的第 j 位
+     * 一次字运算同时更新 64 条通道，适合同时给 64 个水平相邻的窗口位置计分
+     * planes 的长度（不超过 31）需要足够容纳计数的最大值，见 slicedPlanesFor
+     */
+
+    // 容纳 0 ~ maxCount 的计数所需的位平面数
+    public static int slicedPlanesFor(int maxCount) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(maxCount));
+    }
+
+    /**
+     * countIntersectionAt 的位切片版本：一次算出 64 个水平相邻位置的重叠数，
+     * 第 i 条通道为 countIntersectionAt(startRow, startCol + i, other)，planes 先被清零
+     * other 的所有行都必须落在本矩阵内，超出右边界的列按 0 计
+     */
+    public void countIntersectionsAt(int startRow, int startCol, BitMatrix other, long[] planes) {
+        Arrays.fill(planes, 0L);
+        long pending = 0;
+        boolean hasPending = false;
+        for (int r = 0; r < other.rows_count; r++) {
+            for (int c = 0; c < other.cols_count; c++) {
+                if (!other.get(r, c)) continue;
+                long word = wordAt(startRow + r, startCol + c);
+                if (hasPending) {
+                    addSlicedPair(planes, pending, word);
+                } else {
+                    pending = word;
+                }
+                hasPending = !hasPending;
+            }
+        }
+        if (hasPending) rippleAdd(planes, pending, 0);
+    }
+
+    /**
+     * 第 i 条通道加上 (startRow + rows[t], startCol + cols[t] + i) 处的位，t 取遍所有给定位置
+     */
+    public void addSlicedAt(int startRow, int startCol, int[] rows, int[] cols, long[] planes) {
+        int n = rows.length;
+        int t = 0;
+        for (; t + 1 < n; t += 2) {
+            addSlicedPair(planes,
+                    wordAt(startRow + rows[t], startCol + cols[t]),
+                    wordAt(startRow + rows[t + 1], startCol + cols[t + 1]));
+        }
+        if (t < n) rippleAdd(planes, wordAt(startRow + rows[t], startCol + cols[t]), 0);
+    }
+
+    /**
+     * 第 i 条通道减去 (startRow + rows[t], startCol + cols[t] + i) 处的位，调用方需保证这些位之前被加过
+     */
+    public void subtractSlicedAt(int startRow, int startCol, int[] rows, int[] cols, long[] planes) {
+        int n = rows.length;
+        int t = 0;
+        for (; t + 1 < n; t += 2) {
+            long a = wordAt(startRow + rows[t], startCol + cols[t]);
+            long b = wordAt(startRow + rows[t + 1], startCol + cols[t + 1]);
+            // 全减器：第 0 位平面一次减去两个字，借位向高位平面传递
+            long p0 = planes[0];
+            planes[0] = p0 ^ a ^ b;
+            rippleSubtract(planes, (~p0 & (a | b)) | (a & b), 1);
+        }
+        if (t < n) rippleSubtract(planes, wordAt(startRow + rows[t], startCol + cols[t]), 0);
+    }
+
+    /**
+     * 计数 ≥ threshold 的通道：从最高位平面向下逐位比较，只用字级逻辑运算
+     */
+    public static long slicedAtLeast(long[] planes, int threshold) {
+        if (threshold <= 0) return -1L;
+        if ((threshold >>> planes.length) != 0) return 0L;
+        long greater = 0;
+        long equal = -1L;
+        for (int j = planes.length - 1; j >= 0; j--) {
+            long p = planes[j];
+            if (((threshold >>> j) & 1) != 0) {
+                equal &= p;
+            } else {
+                greater |= equal & p;
+                equal &= ~p;
+            }
+        }
+        return greater | equal;
+    }
+
+    // 第 lane 条通道的计数
+    public static int slicedLane(long[] planes, int lane) {
+        int v = 0;
+        for (int j = 0; j < planes.length; j++) {
+            v |= (int) ((planes[j] >>> lane) & 1L) << j;
+        }
+        return v;
+    }
+
+    // 全加器（carry-save）：第 0 位平面一次加上两个字，只有一路进位需要向高位平面传递
+    private static void addSlicedPair(long[] planes, long a, long b) {
+        long p0 = planes[0];
+        long u = p0 ^ a;
+        planes[0] = u ^ b;
+        rippleAdd(planes, (p0 & a) | (u & b), 1);
+    }
+
+    private static void rippleAdd(long[] planes, long carry, int from) {
+        for (int j = from; carry != 0 && j < planes.length; j++) {
+            long p = planes[j];
+            planes[j] = p ^ carry;
+            carry &= p;
+        }
+    }
+
+    private static void rippleSubtract(long[] planes, long borrow, int from) {
+        for (int j = from; borrow != 0 && j < planes.length; j++) {
+            long p = planes[j];
+            planes[j] = p ^ borrow;
+            borrow &= ~p;
+        }
+    }
+
     public void extractSubMatrix(int srcRow, int srcCol, BitMatrix dest) {
         extractSubMatrix(srcRow, srcCol, dest.rows_count, dest.cols_count, dest);
     }
@@ -355,7 +613,12 @@ public class BitMatrix {
             // dest 默认 head=0，直接计算。如果 dest 也要支持滚动，需要 dest.getPhysicalRow(r)
             int destRowStart = r * dest.longPerRow;
 
-            if (srcBitShift == 0) {
+            if (headColIndex != 0) {
+                // 列环不在物理第 0 列时逐字绕回读取
+                for (int i = 0; i < wordsToCopy; i++) {
+                    dest.data[destRowStart + i] = rowWord(srcRowStart, srcCol + (i << 6));
+                }
+            } else if (srcBitShift == 0) {
                 System.arraycopy(this.data, srcRowStart + srcWordOffset, dest.data, destRowStart, wordsToCopy);
             } else {
                 for (int i = 0; i < wordsToCopy; i++) {
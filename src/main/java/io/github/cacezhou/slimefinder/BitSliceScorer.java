@@ -0,0 +1,242 @@
+package io.github.cacezhou.slimefinder;
+
+import java.util.Arrays;
+
+/**
+ * 位切片计分引擎
+ * 与 TileScorer 一样一次生成一个 tile 及其边框的全部史莱姆区块，但存进 BitMatrix，
+ * 再把 tile 切成 64 列宽的条带，每个条带用一组位平面计数器同时给 64 个中心点计分：
+ * 条带顶行由 BitMatrix.countIntersectionsAt 完整计数，之后逐行下移，
+ * 只减去离开窗口的上边缘、加上进入窗口的下边缘，与 SlimeSlider 的增量计分相同，但每次字运算覆盖 64 个中心点
+ *
+ * 门槛比较同样在位平面上完成，只有达到门槛的中心点才会被逐个取出得分，
+ * 门槛升高之后绝大多数行不需要任何逐点操作
+ *
+ * 一个实例内部的缓冲区会被复用，不是线程安全的，每个线程各持有一个
+ */
+public class BitSliceScorer {
+
+    /**
+     * 接收达到门槛的中心点
+     */
+    @FunctionalInterface
+    public interface Admission {
+        /**
+         * 第 k 个掩码在 (x, z) 的得分不低于当前门槛时调用
+         * @return 该掩码之后使用的门槛
+         */
+        int admit(int k, int x, int z, int score);
+    }
+
+    /**
+     * 单个掩码在最大边框内的计分计划，半径较小的掩码向内偏移 radius - 掩码半径，使所有掩码同心
+     */
+    private static final class SlicePlan {
+        final BitMatrix bits;
+        final int offset;
+        // 下移一行时离开窗口的格子（每列最上面的格子），已加上偏移
+        final int[] topRows;
+        final int[] topCols;
+        // 下移一行时进入窗口的格子（每列最下面的格子），已加上偏移
+        final int[] bottomRows;
+        final int[] bottomCols;
+        final long[] planes;
+        // 开启记录时每个中心点的得分，scores[dz * w + dx]，否则为 null
+        int[] scores;
+
+        SlicePlan(AfkMask mask, int offset) {
+            this.bits = mask.bits();
+            this.offset = offset;
+            int dim = bits.rows_count;
+            int tops = 0;
+            int bottoms = 0;
+            for (int r = 0; r < dim; r++) {
+                for (int c = 0; c < dim; c++) {
+                    if (!bits.get(r, c)) continue;
+                    if (r == 0 || !bits.get(r - 1, c)) tops++;
+                    if (r == dim - 1 || !bits.get(r + 1, c)) bottoms++;
+                }
+            }
+            this.topRows = new int[tops];
+            this.topCols = new int[tops];
+            this.bottomRows = new int[bottoms];
+            this.bottomCols = new int[bottoms];
+            tops = 0;
+            bottoms = 0;
+            for (int r = 0; r < dim; r++) {
+                for (int c = 0; c < dim; c++) {
+                    if (!bits.get(r, c)) continue;
+                    if (r == 0 || !bits.get(r - 1, c)) {
+                        topRows[tops] = r + offset;
+                        topCols[tops++] = c + offset;
+                    }
+                    if (r == dim - 1 || !bits.get(r + 1, c)) {
+                        bottomRows[bottoms] = r + offset;
+                        bottomCols[bottoms++] = c + offset;
+                    }
+                }
+            }
+            this.planes = new long[BitMatrix.slicedPlanesFor(mask.cellCount())];
+        }
+    }
+
+    // 所有掩码中的最大半径，决定 tile 的边框
+    private final int radius;
+    private final int maxTileWidth;
+    private final int maxTileHeight;
+    private final SlicePlan[] plans;
+
+    // 指标：累计实时计算的区块数，以及生成区块、计分两个阶段的耗时
+    private long chunksHashed;
+    private long fillNanos;
+    private long scoreNanos;
+
+    private SlimeChunkOracle oracle;
+    private final long[] xTerms;
+    private final long[] zTerms;
+
+    // 可选的磁盘位图缓存，非空时直接从映射内存读取整行
+    private final SlimeBitmapCache cache;
+    private final long[] rowBits;
+
+    // tile 及其边框的史莱姆区块，只使用左上角 (h + 2r - 1) x (w + 2r - 1) 的部分
+    private final BitMatrix chunks;
+
+    /**
+     * @param seed 地图种子
+     * @param masks 一个或多个计分掩码，共用同一批区块
+     * @param maxTileWidth tile 的最大宽度（x 方向中心点个数）
+     * @param maxTileHeight tile 的最大高度（z 方向中心点个数）
+     * @param cache 位图缓存，为 null 时实时计算区块；调用方需保证缓存覆盖 tile 及最大掩码的边框
+     */
+    public BitSliceScorer(long seed, AfkMask[] masks, int maxTileWidth, int maxTileHeight, SlimeBitmapCache cache) {
+        int maskRadius = 0;
+        for (AfkMask mask : masks) maskRadius = Math.max(maskRadius, mask.radius());
+        this.radius = maskRadius;
+        this.maxTileWidth = maxTileWidth;
+        this.maxTileHeight = maxTileHeight;
+        this.plans = new SlicePlan[masks.length];
+        for (int k = 0; k < masks.length; k++) {
+            plans[k] = new SlicePlan(masks[k], maskRadius - masks[k].radius());
+        }
+
+        int haloWidth = maxTileWidth + 2 * maskRadius - 1;
+        int haloHeight = maxTileHeight + 2 * maskRadius - 1;
+        this.oracle = new SlimeChunkOracle(seed);
+        this.xTerms = new long[haloWidth];
+        this.zTerms = new long[haloHeight];
+        this.cache = cache;
+        this.rowBits = new long[(haloWidth + 63) >>> 6];
+        this.chunks = BitMatrix.create(haloHeight, haloWidth);
+    }
+
+    /**
+     * 开启后 scoreTile 额外把每个中心点的得分写入 getScores(k)，与 TileScorer 的结果布局相同
+     * 需要逐个取出所有通道，只在调用方确实需要完整得分（例如热力图）时开启
+     */
+    public void setRecordScores(boolean record) {
+        for (SlicePlan plan : plans) plan.scores = record ? new int[maxTileWidth * maxTileHeight] : null;
+    }
+
+    /**
+     * 换用另一个种子，掩码与缓冲区原样复用；种子不变时什么也不做
+     * @throws IllegalStateException 实例带有位图缓存，缓存只对应构造时的种子
+     */
+    public void setSeed(long seed) {
+        if (oracle.seed == seed) return;
+        if (cache != null) throw new IllegalStateException("BitSliceScorer with a bitmap cache is bound to its seed");
+        oracle = new SlimeChunkOracle(seed);
+    }
+
+    /**
+     * 计算中心点 x ∈ [x0, x0 + w)、z ∈ [z0, z0 + h) 的得分，把不低于门槛的点交给 admission
+     * 得分与 SlimeSlider 在同一中心点的返回值相同
+     * @param minScores 第 k 个掩码的初始门槛，之后以 admission 的返回值为准，数组本身不会被修改
+     */
+    public void scoreTile(int x0, int z0, int w, int h, int[] minScores, Admission admission) {
+        if (w <= 0 || h <= 0 || w > maxTileWidth || h > maxTileHeight) {
+            throw new IllegalArgumentException("Tile size out of range: " + w + "x" + h);
+        }
+        int haloWidth = w + 2 * radius - 1;
+        int haloHeight = h + 2 * radius - 1;
+        int left = x0 - radius;
+        int top = z0 - radius;
+        long t0 = System.nanoTime();
+
+        if (cache != null) {
+            for (int row = 0; row < haloHeight; row++) {
+                cache.readRow(top + row, left, haloWidth, rowBits);
+                chunks.setRowWords(row, rowBits, 0);
+            }
+        } else {
+            chunksHashed += (long) haloWidth * haloHeight;
+            oracle.fillXTerms(xTerms, left);
+            SlimeChunkOracle.fillZTerms(zTerms, top);
+            for (int row = 0; row < haloHeight; row++) {
+                SlimeChunkOracle.fillRowBits(xTerms, 0, haloWidth, zTerms[row], rowBits);
+                chunks.setRowWords(row, rowBits, 0);
+            }
+        }
+
+        long t1 = System.nanoTime();
+        fillNanos += t1 - t0;
+
+        for (int k = 0; k < plans.length; k++) {
+            scorePlan(k, x0, z0, w, h, minScores[k], admission);
+        }
+        scoreNanos += System.nanoTime() - t1;
+    }
+
+    private void scorePlan(int k, int x0, int z0, int w, int h, int minScore, Admission admission) {
+        SlicePlan plan = plans[k];
+        long[] planes = plan.planes;
+        int offset = plan.offset;
+        for (int lane0 = 0; lane0 < w; lane0 += 64) {
+            // 最右一条条带可能不满 64 列，多出的通道读到的是上一个 tile 的残留数据，直接屏蔽
+            long valid = (w - lane0 >= 64) ? -1L : (1L << (w - lane0)) - 1;
+            chunks.countIntersectionsAt(offset, lane0 + offset, plan.bits, planes);
+            for (int dz = 0; dz < h; dz++) {
+                if (dz > 0) {
+                    // 边缘格子已含偏移，起点只需给出中心点所在的行与条带首列
+                    chunks.subtractSlicedAt(dz - 1, lane0, plan.topRows, plan.topCols, planes);
+                    chunks.addSlicedAt(dz, lane0, plan.bottomRows, plan.bottomCols, planes);
+                }
+                if (plan.scores != null) recordRow(plan.scores, dz * w + lane0, planes, valid);
+                long pass = BitMatrix.slicedAtLeast(planes, minScore) & valid;
+                while (pass != 0) {
+                    int lane = Long.numberOfTrailingZeros(pass);
+                    pass &= pass - 1;
+                    int score = BitMatrix.slicedLane(planes, lane);
+                    // 同一行中前面的点入堆后门槛可能已经升高
+                    if (score >= minScore) minScore = admission.admit(k, x0 + lane0 + lane, z0 + dz, score);
+                }
+            }
+        }
+    }
+
+    // 把一行 64 条通道的计数从位平面转回逐点的得分
+    private static void recordRow(int[] scores, int base, long[] planes, long valid) {
+        Arrays.fill(scores, base, base + Long.bitCount(valid), 0);
+        for (int j = 0; j < planes.length; j++) {
+            long bits = planes[j] & valid;
+            while (bits != 0) {
+                scores[base + Long.numberOfTrailingZeros(bits)] |= 1 << j;
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    // 最近一次 scoreTile 中第 k 个掩码的全部得分，未开启 setRecordScores 时为 null
+    public int[] getScores(int k) { return plans[k].scores; }
+
+    public int getMaskCount() { return plans.length; }
+
+    // 累计实时计算的区块数，使用位图缓存时读取的区块不计入
+    public long getChunksHashed() { return chunksHashed; }
+
+    // 累计生成区块的耗时（纳秒）
+    public long getFillNanos() { return fillNanos; }
+
+    // 累计计分的耗时（纳秒）
+    public long getScoreNanos() { return scoreNanos; }
+}
@@ -0,0 +1,248 @@
+package io.github.cacezhou.slimefinder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分布式搜索的协调端：把搜索区域的工作单元切成若干任务，通过 TCP 分发给 ClusterWorker 节点，
+ * 合并各节点返回的局部 topN
+ *
+ * 任务是 SearchGrid 中一段连续的单元编号，每个节点同一时刻只持有一个任务，算完立即领下一个，
+ * 快的节点自然多领，不需要事先知道节点数；节点可以在搜索中途加入
+ * 节点断开或超过心跳超时没有消息时，它手上的任务放回队首重新分配，已完成的任务不受影响
+ *
+ * 每次下发任务时附带当前全局 topN 的最低分，节点用它作为初始入堆门槛和剪枝门槛
+ *
+ * 一个实例只执行一次搜索：构造时即监听端口，节点可以先于 search 连上，
+ * 握手在 search 开始后进行
+ */
+public final class ClusterCoordinator implements Closeable {
+
+    // 任务数的目标值：足够多以便在几十个节点间均衡，又不至于让每个任务的往返开销占比过高
+    private static final int TARGET_JOBS = 1024;
+    // 每个任务至少包含的单元数，保证节点内的多个线程都有活干
+    private static final int MIN_UNITS_PER_JOB = 64;
+
+    private final ServerSocket server;
+
+    private ClusterProtocol.Search search;
+    private BlockingDeque<Job> pending;
+    private boolean[] finishedJobs;
+    private int remainingJobs;
+    private CountDownLatch allDone;
+    private TopNCollector merged;
+    private LongAdder completedSteps;
+    private ResultSink liveSink;
+    // 提示信息的输出，取自 options.log()，节点连接线程也写到这里
+    private PrintStream log;
+
+    private record Job(int id, long fromUnit, long toUnit, long centres) {}
+
+    /**
+     * @param port 监听端口，0 表示由系统分配，之后用 port() 查询
+     */
+    public ClusterCoordinator(int port) throws IOException {
+        this.server = new ServerSocket(port);
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * 执行一次分布式搜索，阻塞到所有任务完成
+     * 使用 options 中的 engine、mask、prune、resultSink、emitCandidates 与进度监听器，不使用位图缓存与断点
+     * @return 由好到差排列的 topN，与单机 findTopSlimeClusters 的结果一致
+     */
+    public List<SearchResult> search(
+            long worldSeed,
+            int centerChunkX,
+            int centerChunkZ,
+            int searchRadius,
+            int slimeRadius,
+            int topN,
+            SearchOptions options
+    ) throws InterruptedException {
+        if (search != null) throw new IllegalStateException("a coordinator runs a single search");
+        log = options.log();
+        if (options.bitmapCacheDir() != null || options.checkpointFile() != null) {
+            log.println("分布式模式不使用位图缓存和断点");
+        }
+        AfkMask mask = options.mask() != null ? options.mask() : AfkMask.circle(slimeRadius);
+        int unitSize = AsyncSlimeFinder.unitSizeFor(options, mask.radius());
+        search = new ClusterProtocol.Search(worldSeed, centerChunkX, centerChunkZ, searchRadius, unitSize, mask,
+                topN, options.engine(), options.prune());
+        SearchGrid grid = search.grid();
+
+        // 按单元编号切成连续的区间，最后一个任务可能较短
+        long unitCount = grid.unitCount();
+        long unitsPerJob = Math.max(MIN_UNITS_PER_JOB, (unitCount + TARGET_JOBS - 1) / TARGET_JOBS);
+        pending = new LinkedBlockingDeque<>();
+        int jobCount = 0;
+        for (long from = 0; from < unitCount; from += unitsPerJob) {
+            long to = Math.min(unitCount, from + unitsPerJob);
+            long centres = 0;
+            for (long unit = from; unit < to; unit++) centres += (long) grid.unitWidth(unit) * grid.unitHeight(unit);
+            pending.add(new Job(jobCount++, from, to, centres));
+        }
+        finishedJobs = new boolean[jobCount];
+        remainingJobs = jobCount;
+        allDone = new CountDownLatch(1);
+        merged = new TopNCollector(topN);
+        liveSink = options.emitCandidates() ? options.resultSink() : null;
+        if (jobCount == 0) allDone.countDown();
+
+        log.printf("分布式搜索：%d 个任务，监听端口 %d，等待节点连接...\n", jobCount, port());
+        ProgressTracker progress = new ProgressTracker(grid.totalCentres(), options).start();
+        completedSteps = progress.completed;
+        Thread acceptThread = new Thread(this::acceptLoop, "cluster-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        try {
+            allDone.await();
+        } finally {
+            progress.stop();
+        }
+        log.println("\n 搜索完成 \n");
+
+        List<AsyncSlimeFinder.SimplePoint> best;
+        synchronized (this) {
+            best = merged.toList();
+        }
+        best.sort(AsyncSlimeFinder.WORST_FIRST.reversed());
+        List<SearchResult> results = new ArrayList<>(best.size());
+        for (AsyncSlimeFinder.SimplePoint p : best) {
+            results.add(new SearchResult(p.x(), p.z(), p.score(), worldSeed, mask.radius()));
+        }
+        AsyncSlimeFinder.emitResults(options.resultSink(), results);
+        return results;
+    }
+
+    /**
+     * 停止监听；已连接的节点在下一次领任务时收到 DONE 后退出
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread t = new Thread(() -> serve(socket), "cluster-" + socket.getRemoteSocketAddress());
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException e) {
+                // 端口已关闭
+                return;
+            }
+        }
+    }
+
+    /**
+     * 一个节点连接的完整生命周期，异常退出时归还它手上的任务
+     */
+    private void serve(Socket socket) {
+        String name = String.valueOf(socket.getRemoteSocketAddress());
+        Job job = null;
+        long reported = 0;
+        try (socket) {
+            socket.setSoTimeout(ClusterProtocol.HEARTBEAT_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != ClusterProtocol.MAGIC || in.readInt() != ClusterProtocol.VERSION) {
+                throw new IOException("protocol mismatch");
+            }
+            int threads = in.readInt();
+            log.printf("\n节点 %s 已连接，%d 线程\n", name, threads);
+            search.writeTo(out);
+            out.flush();
+
+            while (true) {
+                job = nextJob();
+                if (job == null) {
+                    out.writeByte(ClusterProtocol.MSG_DONE);
+                    out.flush();
+                    return;
+                }
+                reported = 0;
+                out.writeByte(ClusterProtocol.MSG_JOB);
+                out.writeInt(job.id);
+                out.writeLong(job.fromUnit);
+                out.writeLong(job.toUnit);
+                out.writeInt(threshold());
+                out.flush();
+
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == ClusterProtocol.MSG_HEARTBEAT) {
+                        long done = in.readLong();
+                        completedSteps.add(done - reported);
+                        reported = done;
+                    } else if (type == ClusterProtocol.MSG_RESULT) {
+                        if (in.readInt() != job.id) throw new IOException("result for an unexpected job");
+                        List<AsyncSlimeFinder.SimplePoint> points = ClusterProtocol.readPoints(in, search.topN());
+                        completedSteps.add(job.centres - reported);
+                        finishJob(job, points);
+                        job = null;
+                        break;
+                    } else {
+                        throw new IOException("unexpected message " + type);
+                    }
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            if (job != null) {
+                completedSteps.add(-reported);
+                pending.addFirst(job);
+                String reason = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                log.printf("\n节点 %s 失联（%s），任务 %d 重新分配\n", name, reason, job.id);
+            }
+        }
+    }
+
+    /**
+     * 取下一个任务；队列暂时为空但仍有任务在其他节点上时等待，它们可能因节点失联被退回
+     * @return 全部任务已完成时返回 null
+     */
+    private Job nextJob() throws InterruptedException {
+        while (true) {
+            synchronized (this) {
+                if (remainingJobs == 0) return null;
+            }
+            Job job = pending.pollFirst(1, TimeUnit.SECONDS);
+            if (job != null) return job;
+        }
+    }
+
+    private synchronized int threshold() {
+        return merged.isFull() ? merged.minScore() : 0;
+    }
+
+    private synchronized void finishJob(Job job, List<AsyncSlimeFinder.SimplePoint> points) {
+        if (finishedJobs[job.id]) return;
+        finishedJobs[job.id] = true;
+        for (AsyncSlimeFinder.SimplePoint p : points) {
+            if (merged.offer(p.x(), p.z(), p.score()) && liveSink != null) {
+                liveSink.candidate(search.worldSeed(), search.mask().radius(), p.x(), p.z(), p.score());
+            }
+        }
+        if (--remainingJobs == 0) allDone.countDown();
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.cacezhou.slimefinder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 协调端与计算节点之间的 TCP 协议，所有消息都用 DataOutputStream 以大端序写出
+ *
+ * 节点连上后先发 HELLO：magic, version, 线程数
+ * 协调端回复 SEARCH：种子、搜索区域、工作单元边长、掩码、topN、引擎、是否剪枝
+ * 之后协调端逐个下发任务，节点计算期间每隔 HEARTBEAT_MILLIS 回一次心跳，算完回结果：
+ *   JOB：任务编号, 单元区间 [from, to), 当前全局门槛
+ *   HEARTBEAT：本任务已计算的中心点数
+ *   RESULT：任务编号, 点数, (x, z, score)...
+ *   DONE：全部任务已完成，节点退出
+ */
+final class ClusterProtocol {
+    static final int MAGIC = 0x534C4346; // "SLCF"
+    static final int VERSION = 1;
+
+    static final byte MSG_JOB = 1;
+    static final byte MSG_DONE = 2;
+    static final byte MSG_HEARTBEAT = 3;
+    static final byte MSG_RESULT = 4;
+
+    // 节点发心跳的间隔；协调端超过 HEARTBEAT_TIMEOUT_MILLIS 收不到任何消息即认为节点失联
+    static final int HEARTBEAT_MILLIS = 2000;
+    static final int HEARTBEAT_TIMEOUT_MILLIS = 15000;
+
+    private ClusterProtocol() {}
+
+    /**
+     * 一次分布式搜索的参数，协调端在握手后发给每个节点
+     */
+    record Search(long worldSeed, int centerChunkX, int centerChunkZ, int searchRadius, int unitSize,
+                  AfkMask mask, int topN, AsyncSlimeFinder.Engine engine, boolean prune) {
+
+        SearchGrid grid() {
+            return SearchGrid.of(centerChunkX, centerChunkZ, searchRadius, unitSize);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(worldSeed);
+            out.writeInt(centerChunkX);
+            out.writeInt(centerChunkZ);
+            out.writeInt(searchRadius);
+            out.writeInt(unitSize);
+            // 掩码按行传输，节点端不需要访问掩码文件
+            BitMatrix bits = mask.bits();
+            out.writeUTF(mask.toString());
+            out.writeInt(bits.rows_count);
+            StringBuilder row = new StringBuilder(bits.cols_count);
+            for (int r = 0; r < bits.rows_count; r++) {
+                row.setLength(0);
+                for (int c = 0; c < bits.cols_count; c++) row.append(bits.get(r, c) ? '1' : '0');
+                out.writeUTF(row.toString());
+            }
+            out.writeInt(topN);
+            out.writeUTF(engine.name());
+            out.writeBoolean(prune);
+        }
+
+        static Search readFrom(DataInputStream in) throws IOException {
+            long worldSeed = in.readLong();
+            int centerChunkX = in.readInt();
+            int centerChunkZ = in.readInt();
+            int searchRadius = in.readInt();
+            int unitSize = in.readInt();
+            String description = in.readUTF();
+            int dim = in.readInt();
+            List<String> rows = new ArrayList<>(dim);
+            for (int r = 0; r < dim; r++) rows.add(in.readUTF());
+            AfkMask mask = AfkMask.fromRows(description, rows);
+            int topN = in.readInt();
+            AsyncSlimeFinder.Engine engine;
+            try {
+                engine = AsyncSlimeFinder.Engine.valueOf(in.readUTF());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("unknown engine", e);
+            }
+            boolean prune = in.readBoolean();
+            return new Search(worldSeed, centerChunkX, centerChunkZ, searchRadius, unitSize, mask, topN, engine,
+                    prune);
+        }
+    }
+
+    static void writePoints(DataOutputStream out, TopNCollector top) throws IOException {
+        out.writeInt(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            out.writeInt(top.x(i));
+            out.writeInt(top.z(i));
+            out.writeInt(top.score(i));
+        }
+    }
+
+    static List<AsyncSlimeFinder.SimplePoint> readPoints(DataInputStream in, int limit) throws IOException {
+        int n = in.readInt();
+        if (n < 0 || n > limit) throw new IOException("invalid point count " + n);
+        List<AsyncSlimeFinder.SimplePoint> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            points.add(new AsyncSlimeFinder.SimplePoint(in.readInt(), in.readInt(), in.readInt()));
+        }
+        return points;
+    }
+}
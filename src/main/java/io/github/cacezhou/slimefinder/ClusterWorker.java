@@ -0,0 +1,118 @@
+package io.github.cacezhou.slimefinder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分布式搜索的计算节点：连上 ClusterCoordinator，逐个领取任务，在本机线程池中计算后把局部 topN 发回
+ * 计算期间由守护线程定期发心跳，协调端据此判断节点是否存活并显示进度
+ *
+ * 同一台机器上可以启动多个节点进程，在回环地址上即可完整测试分布式流程
+ */
+public final class ClusterWorker {
+
+    // 协调端尚未启动时的重试间隔与总等待时间
+    private static final int CONNECT_RETRY_MILLIS = 1000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 60000;
+
+    private ClusterWorker() {}
+
+    /**
+     * 连接协调端并一直工作到收到 DONE
+     * @return 本节点完成的任务数
+     * @throws IOException 无法连接，或与协调端的连接中断
+     */
+    public static int run(String host, int port, int threadCount) throws IOException, InterruptedException {
+        try (Socket socket = connect(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(ClusterProtocol.MAGIC);
+            out.writeInt(ClusterProtocol.VERSION);
+            out.writeInt(threadCount);
+            out.flush();
+
+            ClusterProtocol.Search search = ClusterProtocol.Search.readFrom(in);
+            SearchGrid grid = search.grid();
+            System.out.printf("已连接协调端 %s:%d，种子 %d，掩码 %s\n", host, port, search.worldSeed(), search.mask());
+
+            int jobs = 0;
+            ForkJoinPool pool = new ForkJoinPool(threadCount);
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == ClusterProtocol.MSG_DONE) {
+                        System.out.println("全部任务已完成，本节点完成 " + jobs + " 个任务");
+                        return jobs;
+                    }
+                    if (type != ClusterProtocol.MSG_JOB) throw new IOException("unexpected message " + type);
+                    int jobId = in.readInt();
+                    long fromUnit = in.readLong();
+                    long toUnit = in.readLong();
+                    int threshold = in.readInt();
+
+                    LongAdder completedSteps = new LongAdder();
+                    Thread heartbeat = startHeartbeat(out, completedSteps);
+                    TopNCollector top;
+                    try {
+                        top = AsyncSlimeFinder.searchUnits(pool, search.worldSeed(), search.mask(), grid,
+                                fromUnit, toUnit, search.topN(), search.engine(), search.prune(), threshold,
+                                completedSteps);
+                    } finally {
+                        // 结果之后不能再有心跳，否则会被协调端算进下一个任务
+                        heartbeat.interrupt();
+                        heartbeat.join();
+                    }
+                    synchronized (out) {
+                        out.writeByte(ClusterProtocol.MSG_RESULT);
+                        out.writeInt(jobId);
+                        ClusterProtocol.writePoints(out, top);
+                        out.flush();
+                    }
+                    jobs++;
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private static Socket connect(String host, int port) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                return new Socket(host, port);
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() >= deadline) throw e;
+                Thread.sleep(CONNECT_RETRY_MILLIS);
+            }
+        }
+    }
+
+    private static Thread startHeartbeat(DataOutputStream out, LongAdder completedSteps) {
+        Thread heartbeat = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.sleep(ClusterProtocol.HEARTBEAT_MILLIS);
+                    synchronized (out) {
+                        out.writeByte(ClusterProtocol.MSG_HEARTBEAT);
+                        out.writeLong(completedSteps.sum());
+                        out.flush();
+                    }
+                }
+            } catch (InterruptedException | IOException e) {
+                // 任务结束或连接已断开，由主循环处理
+            }
+        }, "cluster-heartbeat");
+        heartbeat.setDaemon(true);
+        heartbeat.start();
+        return heartbeat;
+    }
+}
@@ -3,6 +3,9 @@ package io.github.cacezhou.slimefinder;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Properties;
 
 public class ConfigLoader {
@@ -22,19 +25,97 @@ public class ConfigLoader {
         return Integer.parseInt(props.getProperty(key).trim());
     }
 
-    // 获取所有参数并封装
+    // 可选参数，缺省时返回 def
+    public String getString(String key, String def) {
+        String value = props.getProperty(key);
+        return (value == null || value.isBlank()) ? def : value.trim();
+    }
+
+    // 获取所有参数并封装，批量模式（配置了 seedFile）下 worldSeed 可以省略；slimeRadius 有多个时取第一个
     public SearchParams getSearchParams() {
         return new SearchParams(
-                getLong("worldSeed"),
+                getString("seedFile", null) == null ? getLong("worldSeed") : Long.parseLong(getString("worldSeed", "0")),
                 getInt("centerChunkX"),
                 getInt("centerChunkZ"),
                 getInt("searchRadius"),
-                getInt("slimeRadius"),
+                getSlimeRadii()[0],
                 getInt("threadCount"),
                 getInt("topN")
         );
     }
 
+    // slimeRadius 可以是逗号分隔的多个半径，例如 6,8,10，一次扫描同时计算
+    public int[] getSlimeRadii() {
+        String[] parts = props.getProperty("slimeRadius").split(",");
+        int[] radii = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) radii[i] = Integer.parseInt(parts[i].trim());
+        return radii;
+    }
+
+    // 可选参数，未出现在配置文件中的保持默认值
+    public SearchOptions getSearchOptions() {
+        SearchOptions options = new SearchOptions()
+                .engine(AsyncSlimeFinder.Engine.valueOf(getString("engine", "slider").toUpperCase()))
+                .unitSize(Integer.parseInt(getString("unitSize", "0")));
+        String cacheDir = getString("bitmapCacheDir", null);
+        if (cacheDir != null) options.bitmapCacheDir(Path.of(cacheDir));
+        String checkpoint = getString("checkpointFile", null);
+        if (checkpoint != null) options.checkpointFile(Path.of(checkpoint));
+        options.checkpointIntervalSeconds(Integer.parseInt(getString("checkpointInterval", "10")));
+        options.resume(Boolean.parseBoolean(getString("resume", "false")));
+        options.prune(Boolean.parseBoolean(getString("prune", "false")));
+        options.emitCandidates(Boolean.parseBoolean(getString("outputCandidates", "false")));
+        options.spiral(Boolean.parseBoolean(getString("spiral", "false")));
+        options.timeBudgetMillis(Long.parseLong(getString("timeBudget", "0")) * 1000);
+        options.targetScore(Integer.parseInt(getString("targetScore", "0")));
+        String heatmap = getString("heatmapDir", null);
+        if (heatmap != null) options.heatmapDir(Path.of(heatmap));
+        options.heatmapLevels(Integer.parseInt(getString("heatmapLevels", "0")));
+        options.heatmapPng(Boolean.parseBoolean(getString("heatmapPng", "true")));
+        String metrics = getString("metricsFile", null);
+        if (metrics != null) options.metricsFile(Path.of(metrics));
+        options.metricsIntervalSeconds(Integer.parseInt(getString("metricsInterval", "5")));
+        return options;
+    }
+
+    /**
+     * 按 mask 读取计分掩码，未配置时返回 null（即半径为 slimeRadius 的圆）
+     * @throws IOException 掩码文件无法读取或格式错误
+     */
+    public AfkMask loadMask(int slimeRadius) throws IOException {
+        String spec = getString("mask", null);
+        return spec == null ? null : AfkMask.parse(spec, slimeRadius);
+    }
+
+    public boolean writesResultsToStdout() {
+        return "stdout".equalsIgnoreCase(getString("output", null));
+    }
+
+    /**
+     * 按 output、outputFormat、outputMatrix 打开结果输出，未配置 output 时返回 null
+     * output 为 stdout 时写入 stdout 参数，否则视为文件路径
+     */
+    public ResultSink openResultSink(OutputStream stdout) throws IOException {
+        String output = getString("output", null);
+        if (output == null) return null;
+        StreamingResultSink.Format format =
+                StreamingResultSink.Format.valueOf(getString("outputFormat", "jsonl").toUpperCase());
+        boolean matrix = Boolean.parseBoolean(getString("outputMatrix", "false"));
+        if (writesResultsToStdout()) return StreamingResultSink.toStream(stdout, format, matrix);
+        return StreamingResultSink.toFile(Path.of(output), format, matrix);
+    }
+
+    /**
+     * 读取批量模式的种子列表：每行一个种子，空行和 # 开头的行被忽略
+     */
+    public static long[] readSeedList(Path file) throws IOException {
+        return Files.readAllLines(file).stream()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .mapToLong(Long::parseLong)
+                .toArray();
+    }
+
     public record SearchParams(
             long seed, int centerX, int centerZ,
             int searchRadius, int slimeRadius,
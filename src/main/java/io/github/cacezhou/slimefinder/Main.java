@@ -2,11 +2,14 @@ package io.github.cacezhou.slimefinder;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -16,18 +19,42 @@ public class Main {
 
     public static void main(String[] args) throws Exception {
         String configPath = "config";
+        // 结果输出到 stdout 时，其余提示信息都改写到 stderr，stdout 只留给结果
+        PrintStream dataOut = System.out;
+        ConfigLoader loader;
         ConfigLoader.SearchParams p;
+        SearchOptions options;
+        String seedFile;
+        int[] slimeRadii;
+        if (args.length >= 2 && args[0].equals("worker")) {
+            runWorker(args);
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("serve")) {
+            runServer(args);
+            return;
+        }
         if (args.length == 1) {
             configPath = args[0];
         } else if (args.length != 0) {
             System.err.println("Usage: java -jar <jarName>.jar <configPath>");
+            System.err.println("       java -jar <jarName>.jar worker <host>:<port> [threadCount]");
+            System.err.println("       java -jar <jarName>.jar serve [port] [threadCount] [cacheSize]");
             return;
         }
         try {
+            loader = new ConfigLoader(configPath);
+            if (loader.writesResultsToStdout()) System.setOut(System.err);
             System.out.println("正在从 " + configPath + " 读取配置...");
-            ConfigLoader loader = new ConfigLoader(configPath);
             p = loader.getSearchParams();
-            System.out.println("配置加载成功，种子: " + p.seed());
+            options = loader.getSearchOptions().addProgressListener(ProgressListener.console());
+            seedFile = loader.getString("seedFile", null);
+            slimeRadii = loader.getSlimeRadii();
+            if (seedFile != null) {
+                System.out.println("配置加载成功，批量模式，种子列表: " + seedFile);
+            } else {
+                System.out.println("配置加载成功，种子: " + p.seed());
+            }
             System.out.println("准备在范围 " + p.searchRadius() + " 内进行多线程搜索...");
         } catch (IOException e) {
             System.err.println("错误：无法读取配置文件 " + configPath);
@@ -38,19 +65,196 @@ public class Main {
         } catch (NumberFormatException e) {
             System.err.println("错误：配置文件中的数值格式不正确，请检查是否包含非数字字符。");
             return;
+        } catch (IllegalArgumentException e) {
+            System.err.println("错误：配置文件中的 engine 只能是 slider、tile 或 bitslice，unitSize 只能在 0 到 "
+                    + SearchOptions.MAX_UNIT_SIZE + " 之间。");
+            return;
+        }
+
+        try {
+            options.mask(loader.loadMask(p.slimeRadius()));
+            if (options.mask() != null) {
+                System.out.printf("计分掩码: %s，共 %d 个区块\n", options.mask(), options.mask().cellCount());
+            }
+        } catch (IOException e) {
+            System.err.println("错误：无法读取掩码文件：" + e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println("错误：配置文件中的 mask 只能是 circle、square、annulus、annulus:内径:外径 或 file:路径。");
+            return;
+        }
+
+        if (Boolean.parseBoolean(loader.getString("autoTune", "false"))) {
+            if (loader.getString("clusterPort", null) != null) {
+                System.out.println("分布式模式的计算在各节点上进行，忽略 autoTune");
+            } else {
+                p = autoTune(loader, p, options);
+            }
+        }
+
+        ResultSink sink;
+        try {
+            sink = loader.openResultSink(dataOut);
+        } catch (IOException e) {
+            System.err.println("错误：无法打开结果输出文件：" + e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println("错误：配置文件中的 outputFormat 只能是 jsonl 或 csv。");
+            return;
+        }
+        options.resultSink(sink);
+
+        try (sink) {
+            if (seedFile != null) {
+                if (slimeRadii.length > 1) System.out.println("批量模式只计算第一个半径 " + p.slimeRadius());
+                runBatch(seedFile, p, options);
+            } else if (loader.getString("clusterPort", null) != null) {
+                runCluster(Integer.parseInt(loader.getString("clusterPort", null)), p, options);
+            } else if (slimeRadii.length > 1) {
+                runMulti(p, slimeRadii, options);
+            } else {
+                runSingle(p, options);
+            }
+        } catch (IOException e) {
+            System.err.println("错误：写入结果失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 校准线程数、工作单元边长与引擎，结果写入 options 并返回替换了线程数的参数
+     * 配置了 tuneProfile 时先读取该档案，档案不存在或与本机、掩码不符时重新校准并写回
+     */
+    private static ConfigLoader.SearchParams autoTune(ConfigLoader loader, ConfigLoader.SearchParams p,
+                                                      SearchOptions options) {
+        AfkMask mask = options.mask() != null ? options.mask() : AfkMask.circle(p.slimeRadius());
+        int processors = Runtime.getRuntime().availableProcessors();
+        String profileFile = loader.getString("tuneProfile", null);
+        AutoTuner.Profile profile = null;
+        if (profileFile != null) {
+            try {
+                profile = AutoTuner.load(Path.of(profileFile), mask, processors);
+            } catch (IOException e) {
+                System.err.println("警告：无法读取调优档案 " + profileFile + "：" + e.getMessage());
+            }
+        }
+
+        if (profile != null) {
+            System.out.println("使用调优档案 " + profileFile + "：" + profile);
+        } else {
+            System.out.println("正在校准线程数、工作单元与引擎...");
+            long t0 = System.currentTimeMillis();
+            long trialMillis = Long.parseLong(loader.getString("tuneTrialMillis",
+                    String.valueOf(AutoTuner.DEFAULT_TRIAL_MILLIS)));
+            profile = new AutoTuner(p.seed(), p.centerX(), p.centerZ(), mask, options.prune(), trialMillis)
+                    .tune(processors);
+            System.out.println("校准完成，耗时: " + (System.currentTimeMillis() - t0) / 1000D + "s，选用" + profile);
+            if (profileFile != null) {
+                try {
+                    AutoTuner.save(Path.of(profileFile), profile, mask, processors);
+                    System.out.println("调优结果已保存到 " + profileFile);
+                } catch (IOException e) {
+                    System.err.println("警告：无法写入调优档案 " + profileFile + "：" + e.getMessage());
+                }
+            }
         }
 
+        options.engine(profile.engine()).unitSize(profile.unitSize());
+        return new ConfigLoader.SearchParams(p.seed(), p.centerX(), p.centerZ(), p.searchRadius(), p.slimeRadius(),
+                profile.threads(), p.topN());
+    }
+
+    private static void runSingle(ConfigLoader.SearchParams p, SearchOptions options) {
         System.out.println("开始搜索...");
         long t0 = System.currentTimeMillis();
 
         // 搜索中心(0,0)，搜索半径 10000 (即 20001x20001 范围)，史莱姆半径 8，线程 8，取前 10 名
         List<SearchResult> topList = AsyncSlimeFinder.findTopSlimeClusters(
-                p.seed(), p.centerX(), p.centerZ(), p.searchRadius(), p.slimeRadius(), p.threads(), p.topN()
+                p.seed(), p.centerX(), p.centerZ(), p.searchRadius(), p.slimeRadius(), p.threads(), p.topN(), options
+        );
+
+        long t1 = System.currentTimeMillis();
+        System.out.println("搜索完成，耗时: " + (t1 - t0) / 1000D + "s");
+
+        printTopList(topList);
+    }
+
+    /**
+     * 分布式模式：本进程作为协调端监听 clusterPort，由 worker 子命令启动的节点完成计算
+     */
+    private static void runCluster(int port, ConfigLoader.SearchParams p, SearchOptions options)
+            throws InterruptedException {
+        long t0 = System.currentTimeMillis();
+        List<SearchResult> topList;
+        try (ClusterCoordinator coordinator = new ClusterCoordinator(port)) {
+            topList = coordinator.search(
+                    p.seed(), p.centerX(), p.centerZ(), p.searchRadius(), p.slimeRadius(), p.topN(), options
+            );
+        } catch (IOException e) {
+            System.err.println("错误：无法监听端口 " + port + "：" + e.getMessage());
+            return;
+        }
+        long t1 = System.currentTimeMillis();
+        System.out.println("搜索完成，耗时: " + (t1 - t0) / 1000D + "s");
+
+        printTopList(topList);
+    }
+
+    /**
+     * 计算节点：worker <host>:<port> [threadCount]，线程数缺省为本机处理器数
+     */
+    private static void runWorker(String[] args) throws InterruptedException {
+        String address = args[1];
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) {
+            System.err.println("错误：协调端地址必须是 <host>:<port>");
+            return;
+        }
+        int threads = args.length >= 3 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        try {
+            ClusterWorker.run(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)), threads);
+        } catch (IOException e) {
+            System.err.println("错误：与协调端 " + address + " 的连接失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 查询服务：serve [port] [threadCount] [cacheSize]，默认端口 8080、线程数为处理器数、缓存 1024 个查询
+     * 服务在后台线程中运行，main 返回后进程不会退出
+     */
+    private static void runServer(String[] args) {
+        int port = args.length >= 2 ? Integer.parseInt(args[1]) : 8080;
+        int threads = args.length >= 3 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int cacheSize = args.length >= 4 ? Integer.parseInt(args[3]) : 1024;
+        try {
+            QueryServer server = QueryServer.start(port, threads, cacheSize);
+            System.out.printf("查询服务已启动: http://127.0.0.1:%d/search?seed=<种子>&radius=<搜索半径>&x=0&z=0\n",
+                    server.port());
+        } catch (IOException e) {
+            System.err.println("错误：无法监听端口 " + port + "：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 多半径模式：一次扫描同时计算 slimeRadius 中的每个半径，各自输出 topN
+     */
+    private static void runMulti(ConfigLoader.SearchParams p, int[] slimeRadii, SearchOptions options) {
+        System.out.println("开始搜索，半径: " + Arrays.toString(slimeRadii) + "...");
+        long t0 = System.currentTimeMillis();
+
+        Map<Integer, List<SearchResult>> byRadius = AsyncSlimeFinder.findTopSlimeClustersMulti(
+                p.seed(), p.centerX(), p.centerZ(), p.searchRadius(), slimeRadii, p.threads(), p.topN(), options
         );
 
         long t1 = System.currentTimeMillis();
         System.out.println("搜索完成，耗时: " + (t1 - t0) / 1000D + "s");
 
+        for (Map.Entry<Integer, List<SearchResult>> entry : byRadius.entrySet()) {
+            System.out.println("\n半径 " + entry.getKey() + "：");
+            printTopList(entry.getValue());
+        }
+    }
+
+    private static void printTopList(List<SearchResult> topList) {
         for (int i = 0; i < topList.size(); i++) {
             SearchResult res = topList.get(i);
             System.out.printf("TOP %d: 区块坐标 [%d, %d] | 坐标：[%d, %d] | 史莱姆区块数: %d\n",
@@ -59,6 +263,44 @@ public class Main {
         }
     }
 
+    /**
+     * 批量模式：一次搜索 seedFile 中的全部种子，按最佳得分输出排行
+     */
+    private static void runBatch(String seedFile, ConfigLoader.SearchParams p, SearchOptions options) {
+        long[] seeds;
+        try {
+            seeds = ConfigLoader.readSeedList(Path.of(seedFile));
+        } catch (IOException e) {
+            System.err.println("错误：无法读取种子列表 " + seedFile);
+            return;
+        } catch (NumberFormatException e) {
+            System.err.println("错误：种子列表中的种子必须是整数：" + e.getMessage());
+            return;
+        }
+
+        System.out.println("开始批量搜索 " + seeds.length + " 个种子...");
+        long t0 = System.currentTimeMillis();
+        List<SeedResult> summary = AsyncSlimeFinder.findTopSlimeClustersBatch(
+                seeds, p.centerX(), p.centerZ(), p.searchRadius(), p.slimeRadius(), p.threads(), p.topN(), options
+        );
+        long t1 = System.currentTimeMillis();
+        double seconds = Math.max(1, t1 - t0) / 1000D;
+        System.out.printf("批量搜索完成，%d 个种子，耗时: %ss，吞吐量: %.1f 种子/小时\n",
+                summary.size(), seconds, summary.size() * 3600 / seconds);
+
+        for (int i = 0; i < summary.size(); i++) {
+            SeedResult seed = summary.get(i);
+            if (seed.results().isEmpty()) {
+                System.out.printf("RANK %d: 种子 %d | 没有找到史莱姆区块\n", i + 1, seed.seed());
+                continue;
+            }
+            SearchResult best = seed.results().get(0);
+            System.out.printf("RANK %d: 种子 %d | 最佳区块坐标 [%d, %d] | 坐标：[%d, %d] | 史莱姆区块数: %d | 前 %d 名合计: %d\n",
+                    i + 1, seed.seed(), best.x(), best.z(), best.x()*16, best.z()*16, best.count(),
+                    seed.results().size(), seed.totalCount());
+        }
+    }
+
     public static void main1(String[] args) {
         int sideLength = 32767;
         int threadCount = 8;
@@ -73,13 +315,12 @@ public class Main {
         try (ExecutorService executor = Executors.newFixedThreadPool(threadCount)) {
             for (SlimeSlider slider : sliders) {
                 executor.submit(() -> {
-                    Random rand = new Random();
                     int maxC = 0;
                     int[] centre = new int[2];
                     long times = 0;
                     BitMatrix matrix = BitMatrix.create(1, 1);
                     for (int x = 0; x < XLengthPerSlider * sideLength; x++) {
-                        int c = slider.slideNext(rand);
+                        int c = slider.slideNext();
                         times++;
                         if (times > 0.01 * XLengthPerSlider * sideLength) {
                             System.out.println(XLengthPerSlider * sideLength - x);
@@ -140,7 +381,6 @@ public class Main {
         System.out.printf("\n内存内计算结果：共%d个1", c);
     }
 
-
     /**
      * This method is copied directly from the source code of Minecraft.
      * It determines which chunks are slime chunks.
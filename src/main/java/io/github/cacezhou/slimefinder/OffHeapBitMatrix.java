@@ -0,0 +1,322 @@
+package io.github.cacezhou.slimefinder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 数据放在堆外的 BitMatrix，用于整片区域的位图：不占 Java 堆，也不被 GC 扫描，可以达到几十 GB
+ * 存储方式与 BitMatrix 相同：每行 longPerRow 个 long，第 i 列是第 i >> 6 个 long 的第 i & 63 位，
+ * 同样用 headRowIndex 做环形行偏移，shiftVertical 只移动头指针并清零失效的行
+ *
+ * 单个 ByteBuffer 不能超过 2GB，数据按行分段，每段至多 1GB，一行不会跨段
+ * 直接内存在对象不可达后由 JVM 回收，文件映射在 buffer 被回收时解除，没有显式释放
+ *
+ * 与 BitMatrix 配合使用：countIntersectionAt 的掩码、extractSubMatrix 的目标都是普通 BitMatrix，
+ * 从大图中取出窗口后交给现有的计分代码
+ * 不是线程安全的；没有写入时 get、wordAt、readRow、countOnes、countIntersectionAt、extractSubMatrix
+ * 可以被多个线程同时调用，writeRow 写入不同的行时也可以并发；
+ * intersect、union、xor、invert 会修改本矩阵，同一时刻只能有一个线程调用
+ */
+public final class OffHeapBitMatrix {
+    private static final long MAX_BAND_BYTES = 1L << 30;
+
+    public final int rows_count;
+    public final int cols_count;
+    private final int longPerRow; // 每一行需要多少个 long
+    private final int rowsPerBand;
+    private final ByteBuffer[] raw;
+    private final LongBuffer[] bands;
+
+    // 逻辑首行所在的物理行 (0 ~ rows_count-1)
+    private int headRowIndex = 0;
+
+    // intersect、union、xor、invert 按行批量读写时复用，只在修改本矩阵时使用；清零用的全 0 行
+    private final long[] rowA;
+    private final long[] rowB;
+    private final long[] zeroRow;
+
+    private OffHeapBitMatrix(int rows_count, int cols_count, ByteBuffer[] raw) {
+        this.rows_count = rows_count;
+        this.cols_count = cols_count;
+        this.longPerRow = longPerRow(cols_count);
+        this.rowsPerBand = rowsPerBand(cols_count);
+        this.raw = raw;
+        this.bands = new LongBuffer[raw.length];
+        for (int b = 0; b < raw.length; b++) bands[b] = raw[b].order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        this.rowA = new long[longPerRow];
+        this.rowB = new long[longPerRow];
+        this.zeroRow = new long[longPerRow];
+    }
+
+    private static int longPerRow(int cols) {
+        return (cols + 63) >>> 6;
+    }
+
+    private static int rowsPerBand(int cols) {
+        return (int) Math.max(1, MAX_BAND_BYTES / ((long) longPerRow(cols) * Long.BYTES));
+    }
+
+    private static void checkSize(int rows, int cols) {
+        if (rows <= 0 || cols <= 0) throw new IllegalArgumentException("Matrix size must be positive: " + rows + "x" + cols);
+    }
+
+    /**
+     * 在直接内存中分配，初始全为 0
+     * 总大小受 -XX:MaxDirectMemorySize 限制（默认与最大堆相同）
+     */
+    public static OffHeapBitMatrix allocate(int rows, int cols) {
+        checkSize(rows, cols);
+        int perBand = rowsPerBand(cols);
+        long rowBytes = (long) longPerRow(cols) * Long.BYTES;
+        ByteBuffer[] raw = new ByteBuffer[(int) ((rows + (long) perBand - 1) / perBand)];
+        for (int b = 0; b < raw.length; b++) {
+            int bandRows = Math.min(perBand, rows - b * perBand);
+            raw[b] = ByteBuffer.allocateDirect((int) (bandRows * rowBytes));
+        }
+        return new OffHeapBitMatrix(rows, cols, raw);
+    }
+
+    /**
+     * 映射到文件，文件不足 rows * longPerRow * 8 字节时扩展（新增部分为 0），已有内容保留
+     * 文件只保存物理行，不记录尺寸与 headRowIndex，重新映射时需给出相同的尺寸，头指针回到 0
+     */
+    public static OffHeapBitMatrix map(Path file, int rows, int cols) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return map(channel, FileChannel.MapMode.READ_WRITE, 0, rows, cols);
+        }
+    }
+
+    /**
+     * 映射 channel 中从 position 开始的 rows * longPerRow * 8 字节，供带文件头的格式（如 SlimeBitmapCache）使用
+     * READ_ONLY 映射的矩阵只能读取，写入时抛出 ReadOnlyBufferException
+     */
+    static OffHeapBitMatrix map(FileChannel channel, FileChannel.MapMode mode, long position, int rows, int cols)
+            throws IOException {
+        checkSize(rows, cols);
+        int perBand = rowsPerBand(cols);
+        long rowBytes = (long) longPerRow(cols) * Long.BYTES;
+        ByteBuffer[] raw = new ByteBuffer[(int) ((rows + (long) perBand - 1) / perBand)];
+        for (int b = 0; b < raw.length; b++) {
+            int bandRows = Math.min(perBand, rows - b * perBand);
+            raw[b] = channel.map(mode, position + b * perBand * rowBytes, bandRows * rowBytes);
+        }
+        return new OffHeapBitMatrix(rows, cols, raw);
+    }
+
+    /**
+     * 把映射文件的修改写回磁盘；直接内存分配的矩阵什么也不做
+     */
+    public void force() {
+        for (ByteBuffer buffer : raw) {
+            if (buffer instanceof MappedByteBuffer mapped) mapped.force();
+        }
+    }
+
+    // 将逻辑行号映射为物理行号，与 BitMatrix 相同的环形加法
+    private int getPhysicalRow(int logicalRow) {
+        int idx = headRowIndex + logicalRow;
+        if (idx >= rows_count) idx -= rows_count;
+        return idx;
+    }
+
+    private LongBuffer band(int physicalRow) {
+        return bands[physicalRow / rowsPerBand];
+    }
+
+    private int rowStart(int physicalRow) {
+        return (physicalRow % rowsPerBand) * longPerRow;
+    }
+
+    /**
+     * 向下位移 delta 行 (负数则向上)，移出的行清零后成为新进入的行
+     */
+    public void shiftVertical(int delta) {
+        if (delta == 0) return;
+        if (Math.abs(delta) >= rows_count) {
+            for (int p = 0; p < rows_count; p++) clearPhysicalRow(p);
+            headRowIndex = 0;
+            return;
+        }
+        if (delta > 0) {
+            for (int i = 0; i < delta; i++) clearPhysicalRow(getPhysicalRow(i));
+            headRowIndex += delta;
+            if (headRowIndex >= rows_count) headRowIndex -= rows_count;
+        } else {
+            int absDelta = -delta;
+            int logicalBottomStart = rows_count - absDelta;
+            for (int i = 0; i < absDelta; i++) clearPhysicalRow(getPhysicalRow(logicalBottomStart + i));
+            headRowIndex -= absDelta;
+            if (headRowIndex < 0) headRowIndex += rows_count;
+        }
+    }
+
+    private void clearPhysicalRow(int physicalRow) {
+        band(physicalRow).put(rowStart(physicalRow), zeroRow, 0, longPerRow);
+    }
+
+    public void set(int row, int col, boolean val) {
+        if (row < 0 || row >= rows_count || col < 0 || col >= cols_count) throw new IndexOutOfBoundsException();
+        int pRow = getPhysicalRow(row);
+        LongBuffer band = band(pRow);
+        int wordIdx = rowStart(pRow) + (col >> 6);
+        long word = band.get(wordIdx);
+        band.put(wordIdx, val ? word | (1L << (col & 63)) : word & ~(1L << (col & 63)));
+    }
+
+    public boolean get(int row, int col) {
+        if (row < 0 || row >= rows_count || col < 0 || col >= cols_count) throw new IndexOutOfBoundsException();
+        int pRow = getPhysicalRow(row);
+        return ((band(pRow).get(rowStart(pRow) + (col >> 6)) >>> (col & 63)) & 1L) == 1;
+    }
+
+    /**
+     * 把逻辑行 row 的全部 longPerRow 个 long 读入 dst
+     */
+    public void readRow(int row, long[] dst) {
+        int pRow = getPhysicalRow(row);
+        band(pRow).get(rowStart(pRow), dst, 0, longPerRow);
+    }
+
+    /**
+     * 用 src 的前 longPerRow 个 long 整行覆盖逻辑行 row，超出列数的位被清除
+     */
+    public void writeRow(int row, long[] src) {
+        int pRow = getPhysicalRow(row);
+        LongBuffer band = band(pRow);
+        int start = rowStart(pRow);
+        band.put(start, src, 0, longPerRow);
+        int tailBits = cols_count & 63;
+        if (tailBits != 0) {
+            int last = start + longPerRow - 1;
+            band.put(last, band.get(last) & ((1L << tailBits) - 1));
+        }
+    }
+
+    /**
+     * 从 (row, col) 起连续 64 个位，第 i 位为 (row, col + i)，超出列数的部分为 0
+     * 不检查行号
+     */
+    public long wordAt(int row, int col) {
+        int remaining = cols_count - col;
+        if (remaining <= 0) return 0L;
+        int pRow = getPhysicalRow(row);
+        LongBuffer band = band(pRow);
+        int rowStart = rowStart(pRow);
+        int wordIdx = col >> 6;
+        int shift = col & 63;
+        long val = band.get(rowStart + wordIdx) >>> shift;
+        if (shift != 0 && wordIdx + 1 < longPerRow) {
+            val |= band.get(rowStart + wordIdx + 1) << (64 - shift);
+        }
+        if (remaining < 64) val &= (1L << remaining) - 1;
+        return val;
+    }
+
+    // 超出列数的位始终为 0，直接累加所有物理行；逐字读取，不用共享的行缓冲，可以与其他读取并发
+    public long countOnes() {
+        long count = 0;
+        for (int p = 0; p < rows_count; p++) {
+            LongBuffer band = band(p);
+            int start = rowStart(p);
+            for (int k = 0; k < longPerRow; k++) count += Long.bitCount(band.get(start + k));
+        }
+        return count;
+    }
+
+    /**
+     * 计算 other 的左上角放在 (startRow, startCol) 时的重叠数，超出本矩阵的部分按 0 计
+     */
+    public int countIntersectionAt(int startRow, int startCol, BitMatrix other) {
+        int checkRows = Math.min(other.rows_count, this.rows_count - startRow);
+        if (checkRows <= 0 || startCol >= cols_count) return 0;
+        int words = (other.cols_count + 63) >>> 6;
+        int totalHits = 0;
+        for (int r = 0; r < checkRows; r++) {
+            for (int i = 0; i < words; i++) {
+                int col = i << 6;
+                totalHits += Long.bitCount(wordAt(startRow + r, startCol + col) & other.wordAt(r, col));
+            }
+        }
+        return totalHits;
+    }
+
+    public void extractSubMatrix(int srcRow, int srcCol, BitMatrix dest) {
+        extractSubMatrix(srcRow, srcCol, dest.rows_count, dest.cols_count, dest);
+    }
+
+    /**
+     * 把以 (srcRow, srcCol) 为左上角、h x w 的区域复制到堆上的 dest，语义与 BitMatrix.extractSubMatrix 相同：
+     * 只覆盖 dest 左上角被复制到的部分
+     */
+    public void extractSubMatrix(int srcRow, int srcCol, int h, int w, BitMatrix dest) {
+        int safeH = Math.min(h, Math.min(this.rows_count - srcRow, dest.rows_count));
+        int safeW = Math.min(w, Math.min(this.cols_count - srcCol, dest.cols_count));
+        if (safeH <= 0 || safeW <= 0) return;
+
+        int wordsToCopy = (safeW + 63) >>> 6;
+        int lastWordBits = safeW & 63;
+        long lastWordMask = (lastWordBits == 0) ? -1L : (1L << lastWordBits) - 1;
+        for (int r = 0; r < safeH; r++) {
+            for (int i = 0; i < wordsToCopy; i++) {
+                long val = wordAt(srcRow + r, srcCol + (i << 6));
+                if (i == wordsToCopy - 1) val &= lastWordMask;
+                dest.setWord(r, i, val);
+            }
+        }
+    }
+
+    public void intersect(OffHeapBitMatrix other) {
+        checkDim(other);
+        for (int r = 0; r < rows_count; r++) {
+            this.readRow(r, rowA);
+            other.readRow(r, rowB);
+            for (int k = 0; k < longPerRow; k++) rowA[k] &= rowB[k];
+            this.writeRow(r, rowA);
+        }
+    }
+
+    public void union(OffHeapBitMatrix other) {
+        checkDim(other);
+        for (int r = 0; r < rows_count; r++) {
+            this.readRow(r, rowA);
+            other.readRow(r, rowB);
+            for (int k = 0; k < longPerRow; k++) rowA[k] |= rowB[k];
+            this.writeRow(r, rowA);
+        }
+    }
+
+    public void xor(OffHeapBitMatrix other) {
+        checkDim(other);
+        for (int r = 0; r < rows_count; r++) {
+            this.readRow(r, rowA);
+            other.readRow(r, rowB);
+            for (int k = 0; k < longPerRow; k++) rowA[k] ^= rowB[k];
+            this.writeRow(r, rowA);
+        }
+    }
+
+    // 取反与行序无关，按物理行处理；writeRow 负责清掉行尾多出的位
+    public void invert() {
+        int head = headRowIndex;
+        headRowIndex = 0;
+        for (int p = 0; p < rows_count; p++) {
+            readRow(p, rowA);
+            for (int k = 0; k < longPerRow; k++) rowA[k] = ~rowA[k];
+            writeRow(p, rowA);
+        }
+        headRowIndex = head;
+    }
+
+    private void checkDim(OffHeapBitMatrix other) {
+        if (this.rows_count != other.rows_count || this.cols_count != other.cols_count) {
+            throw new IllegalArgumentException("Matrix dimensions must match.");
+        }
+    }
+}
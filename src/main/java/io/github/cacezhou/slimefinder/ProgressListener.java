@@ -0,0 +1,24 @@
+package io.github.cacezhou.slimefinder;
+
+/**
+ * 搜索进度的回调，通过 SearchOptions.addProgressListener 或 SearchHandle.addListener 注册
+ * 由搜索的进度线程按 SearchOptions.progressIntervalMillis 定期调用，搜索结束时再调用一次；
+ * 不在计算线程上调用，回调耗时不影响搜索，但同一次搜索的回调是串行的，不应长时间阻塞
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    void onProgress(SearchProgress progress);
+
+    /**
+     * 在控制台同一行刷新进度、百分比与预计剩余时间，命令行入口默认使用
+     */
+    static ProgressListener console() {
+        return progress -> {
+            if (progress.completed() <= 0) return;
+            System.out.printf("\r[Progress] %d/%d (%.2f%%) | ETA: %s",
+                    progress.completed(), progress.total(), progress.fraction() * 100.0,
+                    Main.formatTime(progress.etaMillis()));
+        };
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.cacezhou.slimefinder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一次搜索的进度：计算线程每完成一个工作单元向 completed 累加一次，
+ * 读取方随时求和得到快照，不加锁，也不打断计算线程
+ * 有监听器时由一个守护线程定期把快照交给它们
+ */
+final class ProgressTracker {
+
+    final LongAdder completed = new LongAdder();
+    private final long total;
+    private final long intervalMillis;
+    private final long startNanos = System.nanoTime();
+    private final List<ProgressListener> listeners;
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private Thread monitorThread;
+
+    /**
+     * @param total 中心点总数
+     * @param listeners 初始的监听器，之后还可以用 addListener 追加
+     */
+    ProgressTracker(long total, List<ProgressListener> listeners, long intervalMillis) {
+        this.total = total;
+        this.intervalMillis = Math.max(1, intervalMillis);
+        this.listeners = new CopyOnWriteArrayList<>(listeners);
+    }
+
+    ProgressTracker(long total, SearchOptions options) {
+        this(total, options.progressListeners(), options.progressIntervalMillis());
+    }
+
+    SearchProgress snapshot() {
+        return new SearchProgress(completed.sum(), total, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    void addListener(ProgressListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 启动通知线程，调用方结束时负责 stop
+     */
+    ProgressTracker start() {
+        monitorThread = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.sleep(intervalMillis);
+                    notifyListeners();
+                }
+            } catch (InterruptedException e) {
+                // 退出
+            }
+        }, "search-progress");
+        monitorThread.setDaemon(true);
+        monitorThread.start();
+        return this;
+    }
+
+    /**
+     * 停止通知线程并把最终进度通知一次，重复调用无效
+     */
+    void stop() {
+        if (!stopped.compareAndSet(false, true)) return;
+        if (monitorThread != null) {
+            monitorThread.interrupt();
+            try {
+                monitorThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        if (listeners.isEmpty()) return;
+        SearchProgress progress = snapshot();
+        for (ProgressListener listener : listeners) {
+            try {
+                listener.onProgress(progress);
+            } catch (RuntimeException e) {
+                System.err.println("\n进度监听器出错: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.cacezhou.slimefinder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 常驻的查询服务：在本机回环地址上通过 HTTP 提供 findTopSlimeClusters，省去每次查询启动 JVM 和预热 JIT 的开销
+ *
+ * GET /search?seed=&lt;种子&gt;&amp;radius=&lt;搜索半径&gt;[&amp;x=0][&amp;z=0][&amp;slimeRadius=8][&amp;topN=10][&amp;engine=tile][&amp;matrix=false]
+ * 返回 JSON Lines，格式与 StreamingResultSink 相同；响应头 X-Cache 为 hit、contained 或 miss，
+ * X-Elapsed-Micros 为服务端处理耗时
+ *
+ * 每个请求由一个虚拟线程处理，计算统一提交到同一个 ForkJoinPool，并发请求共享全部计算线程
+ * 结果进入 ResultCache，重复查询和被已有结果包含的附近小范围查询直接由缓存回答
+ */
+public final class QueryServer implements Closeable {
+
+    // 单次查询的上限，防止一个请求占满内存，或长时间占住共享的计算线程（计算开始后无法取消）
+    private static final int MAX_TOP_N = 100_000;
+    private static final int MAX_RADIUS = 10_000;
+    private static final int MAX_SLIME_RADIUS = 128;
+
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final ForkJoinPool computePool;
+    private final ResultCache cache;
+
+    private QueryServer(HttpServer server, ForkJoinPool computePool, int cacheCapacity) {
+        this.server = server;
+        this.requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.computePool = computePool;
+        this.cache = new ResultCache(cacheCapacity);
+        server.setExecutor(requestExecutor);
+        server.createContext("/search", this::handleSearch);
+    }
+
+    /**
+     * 在回环地址上启动服务，启动前先跑一次小范围搜索预热 JIT
+     * @param port 端口，0 表示由系统分配，之后用 port() 查询
+     * @param threadCount 计算线程数，所有请求共享
+     * @param cacheCapacity 最多缓存的查询数
+     */
+    public static QueryServer start(int port, int threadCount, int cacheCapacity) throws IOException {
+        HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        QueryServer server = new QueryServer(http, new ForkJoinPool(threadCount), cacheCapacity);
+        long t0 = System.currentTimeMillis();
+        server.compute(new ResultCache.Query(0, 0, 0, 256, 8, 10), AsyncSlimeFinder.Engine.TILE);
+        System.out.println("预热完成，耗时: " + (System.currentTimeMillis() - t0) / 1000D + "s");
+        http.start();
+        return server;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        requestExecutor.shutdown();
+        computePool.shutdown();
+    }
+
+    /**
+     * 在共享线程池上计算一次查询，TILE 引擎时开启剪枝
+     */
+    private List<SearchResult> compute(ResultCache.Query q, AsyncSlimeFinder.Engine engine) {
+        AfkMask mask = AfkMask.circle(q.slimeRadius());
+        SearchGrid grid = SearchGrid.of(q.centerX(), q.centerZ(), q.searchRadius(),
+                AsyncSlimeFinder.unitSizeFor(engine, mask.radius()));
+        TopNCollector top = AsyncSlimeFinder.searchUnits(computePool, q.seed(), mask, grid, 0, grid.unitCount(),
+                q.topN(), engine, engine == AsyncSlimeFinder.Engine.TILE, 0, new LongAdder());
+        List<AsyncSlimeFinder.SimplePoint> best = top.toList();
+        best.sort(AsyncSlimeFinder.WORST_FIRST.reversed());
+        List<SearchResult> results = new ArrayList<>(best.size());
+        for (AsyncSlimeFinder.SimplePoint p : best) {
+            results.add(new SearchResult(p.x(), p.z(), p.score(), q.seed(), q.slimeRadius()));
+        }
+        return results;
+    }
+
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendText(exchange, 405, "only GET is supported");
+                return;
+            }
+            ResultCache.Query query;
+            AsyncSlimeFinder.Engine engine;
+            boolean matrix;
+            try {
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                query = new ResultCache.Query(
+                        Long.parseLong(required(params, "seed")),
+                        Integer.parseInt(params.getOrDefault("x", "0")),
+                        Integer.parseInt(params.getOrDefault("z", "0")),
+                        Integer.parseInt(required(params, "radius")),
+                        Integer.parseInt(params.getOrDefault("slimeRadius", "8")),
+                        Integer.parseInt(params.getOrDefault("topN", "10")));
+                engine = AsyncSlimeFinder.Engine.valueOf(params.getOrDefault("engine", "tile").toUpperCase());
+                matrix = Boolean.parseBoolean(params.getOrDefault("matrix", "false"));
+                if (query.searchRadius() < 0 || query.searchRadius() > MAX_RADIUS
+                        || query.slimeRadius() < 1 || query.slimeRadius() > MAX_SLIME_RADIUS
+                        || query.topN() < 1 || query.topN() > MAX_TOP_N) {
+                    throw new IllegalArgumentException("radius, slimeRadius or topN out of range");
+                }
+            } catch (IllegalArgumentException e) {
+                sendText(exchange, 400, e.getMessage());
+                return;
+            }
+
+            long t0 = System.nanoTime();
+            ResultCache.Hit hit = cache.lookup(query);
+            List<SearchResult> results;
+            String cacheStatus;
+            if (hit != null) {
+                results = hit.results();
+                cacheStatus = hit.exact() ? "hit" : "contained";
+            } else {
+                results = compute(query, engine);
+                cache.put(query, results);
+                cacheStatus = "miss";
+            }
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (StreamingResultSink sink = StreamingResultSink.toStream(body, StreamingResultSink.Format.JSONL, matrix)) {
+                AsyncSlimeFinder.emitResults(sink, results);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+            exchange.getResponseHeaders().set("X-Cache", cacheStatus);
+            exchange.getResponseHeaders().set("X-Elapsed-Micros", String.valueOf((System.nanoTime() - t0) / 1000));
+            send(exchange, 200, body.toByteArray());
+        }
+    }
+
+    private static String required(Map<String, String> params, String key) {
+        String value = params.get(key);
+        if (value == null) throw new IllegalArgumentException("missing parameter: " + key);
+        return value;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) return params;
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value.trim());
+        }
+        return params;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        send(exchange, status, (message + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.cacezhou.slimefinder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * QueryServer 的结果缓存：按 (种子, 中心, 搜索半径, 史莱姆半径, topN) 缓存排好序的 topN，超出容量时淘汰最久未用的一项
+ *
+ * 除了完全相同的查询，区域被某个缓存项包含的查询也可能直接由缓存回答：
+ * 缓存项 L 是大区域的 topN，大区域中不在 L 里的点都比 L 中每个点差，
+ * 因此 L 中落在小区域内的点若不少于所需的 topN 个，它们的前 topN 个就是小区域的 topN；
+ * L 未满时它已包含大区域内所有得分为正的点，小区域的结果同样可以直接取出
+ */
+final class ResultCache {
+
+    record Query(long seed, int centerX, int centerZ, int searchRadius, int slimeRadius, int topN) {
+
+        // 中心点覆盖 x ∈ [centerX - R, centerX + R]、z ∈ [centerZ - R + 1, centerZ + R + 1]，两个方向的偏移一致
+        boolean covers(Query other) {
+            return seed == other.seed && slimeRadius == other.slimeRadius
+                    && other.centerX - other.searchRadius >= centerX - searchRadius
+                    && other.centerX + other.searchRadius <= centerX + searchRadius
+                    && other.centerZ - other.searchRadius >= centerZ - searchRadius
+                    && other.centerZ + other.searchRadius <= centerZ + searchRadius;
+        }
+
+        boolean containsCentre(int x, int z) {
+            return Math.abs(x - centerX) <= searchRadius && Math.abs(z - 1 - centerZ) <= searchRadius;
+        }
+    }
+
+    // exact 为 false 表示由包含它的缓存项推出
+    record Hit(List<SearchResult> results, boolean exact) {}
+
+    private final LinkedHashMap<Query, List<SearchResult>> entries;
+
+    /**
+     * @param capacity 最多缓存的查询数
+     */
+    ResultCache(int capacity) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Query, List<SearchResult>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return 命中时返回由好到差排列的结果，否则返回 null
+     */
+    synchronized Hit lookup(Query query) {
+        List<SearchResult> exact = entries.get(query);
+        if (exact != null) return new Hit(exact, true);
+
+        Query source = null;
+        List<SearchResult> inside = null;
+        for (Map.Entry<Query, List<SearchResult>> e : entries.entrySet()) {
+            Query cached = e.getKey();
+            if (!cached.covers(query)) continue;
+            List<SearchResult> all = e.getValue();
+            List<SearchResult> filtered = new ArrayList<>(query.topN);
+            for (SearchResult r : all) {
+                if (!query.containsCentre(r.x(), r.z())) continue;
+                filtered.add(r);
+                if (filtered.size() == query.topN) break;
+            }
+            if (filtered.size() == query.topN || all.size() < cached.topN) {
+                source = cached;
+                inside = filtered;
+                break;
+            }
+        }
+        if (source == null) return null;
+        entries.get(source); // 刷新被借用的缓存项
+        return new Hit(List.copyOf(inside), false);
+    }
+
+    synchronized void put(Query query, List<SearchResult> results) {
+        entries.put(query, List.copyOf(results));
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.cacezhou.slimefinder;
+
+import java.io.IOException;
+
+/**
+ * 搜索结果的输出目标，通过 SearchOptions.resultSink 传给 AsyncSlimeFinder
+ * 调用方负责 close，搜索本身不会关闭 sink
+ */
+public interface ResultSink extends AutoCloseable {
+
+    /**
+     * 候选点进入当前的全局 topN 时调用，仅在 SearchOptions.emitCandidates 打开时使用
+     * 此时搜索还在进行，该点之后可能被更优的点挤出；可能由任意工作线程调用，但不会并发调用
+     * 多半径搜索时每个半径各有一份 topN，slimeRadius 指明该点属于哪一份
+     */
+    default void candidate(long seed, int slimeRadius, int x, int z, int score) {}
+
+    /**
+     * 搜索结束后按名次依次调用，rank 从 1 开始；批量搜索时每个种子的名次各自从 1 开始
+     */
+    void result(int rank, SearchResult result);
+
+    @Override
+    void close() throws IOException;
+}
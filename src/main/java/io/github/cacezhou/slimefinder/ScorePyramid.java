@@ -0,0 +1,271 @@
+package io.github.cacezhou.slimefinder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 整个搜索区域的得分金字塔：第 0 层是每个中心点的得分，第 l 层每格是第 l-1 层 2x2 格的最大值，
+ * 即 2^l x 2^l 个中心点中的最高分，用来查看整片区域的史莱姆密度分布
+ *
+ * 由工作线程在计分的同时写入，不需要第二遍扫描：工作单元边长为 2^u 且按网格原点对齐，
+ * 第 0 ~ u 层的格子都完整落在一个单元内，由该单元的线程在局部缓冲区里逐层归约后直接写入，线程之间没有共享；
+ * 更高的层每格包含多个单元，每个单元只贡献一个最大值，用原子操作合并
+ *
+ * 输出目录：
+ * <pre>
+ * level-&lt;l&gt;.u16          第 l 层的原始网格，小端无符号 16 位，z 方向逐行存放，每行 width(l) 格
+ * index.json             区域原点、各层尺寸与最高分
+ * png/&lt;l&gt;/&lt;tx&gt;_&lt;tz&gt;.png  可选的 256x256 灰度图块，灰度按全区域最高分线性缩放
+ * </pre>
+ * 第 l 层格子 (i, j) 覆盖中心点 x ∈ [originX + i * 2^l, originX + (i + 1) * 2^l)，z 方向同理
+ * 网格文件通过内存映射写入，第 0 层在大范围搜索时可能有数 GB，不占 Java 堆
+ */
+final class ScorePyramid {
+    static final int TILE_PIXELS = 256;
+    private static final long MAX_BAND_BYTES = 1L << 30;
+
+    private final Path dir;
+    private final long seed;
+    private final AfkMask mask;
+    private final int originX;
+    private final int originZ;
+    private final int sideLength;
+    private final int unitShift;
+    private final Level[] levels;
+    // 层号大于 unitShift 的层先在内存中合并，finish 时写入文件
+    private final AtomicIntegerArray[] shared;
+
+    /**
+     * 单层网格，按行分段映射，一行不会跨段
+     */
+    private static final class Level {
+        final int width;
+        final int rowsPerBand;
+        final MappedByteBuffer[] raw;
+        final ShortBuffer[] bands;
+
+        Level(Path file, int width) throws IOException {
+            this.width = width;
+            this.rowsPerBand = (int) Math.max(1, MAX_BAND_BYTES / (2L * width));
+            long rowBytes = 2L * width;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                int bandCount = (width + rowsPerBand - 1) / rowsPerBand;
+                raw = new MappedByteBuffer[bandCount];
+                bands = new ShortBuffer[bandCount];
+                for (int b = 0; b < bandCount; b++) {
+                    int rows = Math.min(rowsPerBand, width - b * rowsPerBand);
+                    raw[b] = channel.map(FileChannel.MapMode.READ_WRITE, b * rowsPerBand * rowBytes, rows * rowBytes);
+                    bands[b] = raw[b].order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+                }
+            }
+        }
+
+        void putRow(int row, int col, short[] src, int length) {
+            bands[row / rowsPerBand].put((row % rowsPerBand) * width + col, src, 0, length);
+        }
+
+        void getRow(int row, int col, short[] dst, int length) {
+            bands[row / rowsPerBand].get((row % rowsPerBand) * width + col, dst, 0, length);
+        }
+
+        void force() {
+            for (MappedByteBuffer buffer : raw) buffer.force();
+        }
+    }
+
+    /**
+     * @param grid 搜索网格，单元边长必须是 2 的幂
+     * @param levelCount 层数，0 表示一直缩小到一层只有一个图块为止
+     */
+    static ScorePyramid create(Path dir, SearchGrid grid, long seed, AfkMask mask, int levelCount) throws IOException {
+        if (Integer.bitCount(grid.unitSize) != 1) {
+            throw new IllegalArgumentException("unit size must be a power of two: " + grid.unitSize);
+        }
+        if (levelCount <= 0) {
+            levelCount = 1;
+            while (levelWidth(grid.sideLength, levelCount - 1) > TILE_PIXELS) levelCount++;
+        }
+        Files.createDirectories(dir);
+        return new ScorePyramid(dir, grid, seed, mask, levelCount);
+    }
+
+    private ScorePyramid(Path dir, SearchGrid grid, long seed, AfkMask mask, int levelCount) throws IOException {
+        this.dir = dir;
+        this.seed = seed;
+        this.mask = mask;
+        this.originX = grid.startX;
+        this.originZ = grid.firstZ;
+        this.sideLength = grid.sideLength;
+        this.unitShift = Integer.numberOfTrailingZeros(grid.unitSize);
+        this.levels = new Level[levelCount];
+        for (int l = 0; l < levelCount; l++) {
+            levels[l] = new Level(dir.resolve("level-" + l + ".u16"), levelWidth(sideLength, l));
+        }
+        this.shared = new AtomicIntegerArray[Math.max(0, levelCount - unitShift - 1)];
+        for (int i = 0; i < shared.length; i++) {
+            int width = levelWidth(sideLength, unitShift + 1 + i);
+            shared[i] = new AtomicIntegerArray(width * width);
+        }
+    }
+
+    // 第 level 层每行的格数
+    static int levelWidth(int sideLength, int level) {
+        return ((sideLength - 1) >> level) + 1;
+    }
+
+    int levelCount() {
+        return levels.length;
+    }
+
+    /**
+     * 每个工作线程一个，内部缓冲区按单元大小分配并复用
+     */
+    Writer newWriter() {
+        return new Writer(1 << unitShift);
+    }
+
+    final class Writer {
+        private final int[] even;
+        private final int[] odd;
+        private final short[] row;
+
+        private Writer(int unitSize) {
+            int half = (unitSize + 1) / 2;
+            this.even = new int[half * half];
+            this.odd = new int[half * half];
+            this.row = new short[unitSize];
+        }
+
+        /**
+         * 写入一个工作单元所有中心点的得分
+         * @param scores scores[dz * w + dx] 为中心点 (x0 + dx, z0 + dz) 的得分
+         */
+        void record(int x0, int z0, int w, int h, int[] scores) {
+            int cx = x0 - originX;
+            int cz = z0 - originZ;
+            int[] cur = scores;
+            int cw = w;
+            int ch = h;
+            int top = Math.min(levels.length - 1, unitShift);
+            for (int l = 0; ; l++) {
+                Level level = levels[l];
+                int lx = cx >> l;
+                int lz = cz >> l;
+                for (int j = 0; j < ch; j++) {
+                    int base = j * cw;
+                    for (int i = 0; i < cw; i++) row[i] = (short) Math.min(cur[base + i], 0xFFFF);
+                    level.putRow(lz + j, lx, row, cw);
+                }
+                if (l == top) break;
+
+                // 2x2 最大池化，边缘不足 2 格时只取存在的格子
+                int[] next = (cur == even) ? odd : even;
+                int nw = (cw + 1) / 2;
+                int nh = (ch + 1) / 2;
+                for (int j = 0; j < nh; j++) {
+                    int r0 = 2 * j * cw;
+                    int r1 = (2 * j + 1 < ch) ? r0 + cw : r0;
+                    for (int i = 0; i < nw; i++) {
+                        int c0 = 2 * i;
+                        int c1 = (c0 + 1 < cw) ? c0 + 1 : c0;
+                        next[j * nw + i] = Math.max(Math.max(cur[r0 + c0], cur[r0 + c1]),
+                                Math.max(cur[r1 + c0], cur[r1 + c1]));
+                    }
+                }
+                cur = next;
+                cw = nw;
+                ch = nh;
+            }
+
+            if (shared.length == 0) return;
+            // 第 unitShift 层时整个单元已归约成一格
+            int unitMax = cur[0];
+            for (int i = 0; i < shared.length; i++) {
+                int l = unitShift + 1 + i;
+                int idx = (cz >> l) * levelWidth(sideLength, l) + (cx >> l);
+                if (unitMax > shared[i].get(idx)) shared[i].accumulateAndGet(idx, unitMax, Math::max);
+            }
+        }
+    }
+
+    /**
+     * 搜索结束后调用：写入合并层、index.json，必要时导出 PNG 图块
+     * @return 全区域最高分
+     */
+    int finish(boolean png) throws IOException {
+        short[] row = new short[levels.length > 0 ? levels[0].width : 0];
+        for (int i = 0; i < shared.length; i++) {
+            Level level = levels[unitShift + 1 + i];
+            for (int j = 0; j < level.width; j++) {
+                for (int c = 0; c < level.width; c++) {
+                    row[c] = (short) Math.min(shared[i].get(j * level.width + c), 0xFFFF);
+                }
+                level.putRow(j, 0, row, level.width);
+            }
+        }
+        for (Level level : levels) level.force();
+
+        // 最上层最小，逐格取最大即可
+        Level topLevel = levels[levels.length - 1];
+        int maxScore = 0;
+        for (int j = 0; j < topLevel.width; j++) {
+            topLevel.getRow(j, 0, row, topLevel.width);
+            for (int c = 0; c < topLevel.width; c++) maxScore = Math.max(maxScore, row[c] & 0xFFFF);
+        }
+        writeIndex(maxScore);
+        if (png) exportPng(maxScore);
+        return maxScore;
+    }
+
+    private void writeIndex(int maxScore) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(dir.resolve("index.json"), StandardCharsets.UTF_8)) {
+            out.write("{\"seed\":" + seed + ",\"mask\":\"" + mask + "\",\"originX\":" + originX
+                    + ",\"originZ\":" + originZ + ",\"sideLength\":" + sideLength + ",\"maxScore\":" + maxScore
+                    + ",\"tilePixels\":" + TILE_PIXELS + ",\"levels\":[");
+            for (int l = 0; l < levels.length; l++) {
+                if (l > 0) out.write(',');
+                out.write("{\"level\":" + l + ",\"cellSize\":" + (1L << l) + ",\"width\":" + levels[l].width
+                        + ",\"height\":" + levels[l].width + ",\"file\":\"level-" + l + ".u16\"}");
+            }
+            out.write("]}\n");
+        }
+    }
+
+    private void exportPng(int maxScore) throws IOException {
+        int scale = Math.max(1, maxScore);
+        short[] row = new short[TILE_PIXELS];
+        for (int l = 0; l < levels.length; l++) {
+            Level level = levels[l];
+            Path levelDir = dir.resolve("png").resolve(String.valueOf(l));
+            Files.createDirectories(levelDir);
+            int tiles = (level.width + TILE_PIXELS - 1) / TILE_PIXELS;
+            for (int tz = 0; tz < tiles; tz++) {
+                for (int tx = 0; tx < tiles; tx++) {
+                    int w = Math.min(TILE_PIXELS, level.width - tx * TILE_PIXELS);
+                    int h = Math.min(TILE_PIXELS, level.width - tz * TILE_PIXELS);
+                    BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_GRAY);
+                    byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+                    for (int j = 0; j < h; j++) {
+                        level.getRow(tz * TILE_PIXELS + j, tx * TILE_PIXELS, row, w);
+                        for (int i = 0; i < w; i++) pixels[j * w + i] = (byte) ((row[i] & 0xFFFF) * 255 / scale);
+                    }
+                    ImageIO.write(image, "png", levelDir.resolve(tx + "_" + tz + ".png").toFile());
+                }
+            }
+        }
+    }
+}
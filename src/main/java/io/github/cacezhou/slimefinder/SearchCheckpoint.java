@@ -0,0 +1,154 @@
+package io.github.cacezhou.slimefinder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 长时间搜索的断点：记录哪些工作单元已经完成，以及当时的 topN 候选点
+ *
+ * 工作线程完成一个单元只需一次原子 OR，保存时先快照完成位图再收集候选点：
+ * 位图中的单元在快照前就已完成，其候选点要么仍在堆中，要么已被更优的点挤出，
+ * 因此保存的候选点一定覆盖位图中所有单元的 topN
+ *
+ * 文件格式（DataOutputStream，大端序）：
+ * magic, version, key[KEY_LENGTH], unitCount, 位图 long[], 掩码个数, 每个掩码：候选点个数, (x, z, score)...
+ */
+final class SearchCheckpoint {
+    private static final int MAGIC = 0x534C4350; // "SLCP"
+    private static final int VERSION = 4;
+    // seed, centerX, centerZ, searchRadius, 所有掩码合并的指纹, unitSize, topN
+    // 已完成单元只保存了前 topN 个候选点，换更大的 topN 恢复会漏掉结果，因此 topN 也必须一致
+    private static final int KEY_LENGTH = 7;
+
+    private final Path file;
+    private final long[] key;
+    private final long unitCount;
+    private final AtomicLongArray done;
+    private final List<List<AsyncSlimeFinder.SimplePoint>> restored;
+
+    private SearchCheckpoint(Path file, long[] key, long unitCount, AtomicLongArray done,
+                             List<List<AsyncSlimeFinder.SimplePoint>> restored) {
+        this.file = file;
+        this.key = key;
+        this.unitCount = unitCount;
+        this.done = done;
+        this.restored = restored;
+    }
+
+    static long[] keyOf(long seed, int centerX, int centerZ, int searchRadius, long maskFingerprint, int unitSize,
+                        int topN) {
+        return new long[]{seed, centerX, centerZ, searchRadius, maskFingerprint, unitSize, topN};
+    }
+
+    /**
+     * 新建空断点，不读取已有文件
+     */
+    static SearchCheckpoint create(Path file, long[] key, long unitCount, int maskCount) {
+        List<List<AsyncSlimeFinder.SimplePoint>> restored = new ArrayList<>(maskCount);
+        for (int k = 0; k < maskCount; k++) restored.add(List.of());
+        return new SearchCheckpoint(file, key, unitCount, new AtomicLongArray(wordCount(unitCount)), restored);
+    }
+
+    /**
+     * 从文件恢复断点
+     * @throws IOException 文件不存在、损坏，或记录的搜索参数与本次不同
+     */
+    static SearchCheckpoint resume(Path file, long[] key, long unitCount, int maskCount) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("not a checkpoint file");
+            if (in.readInt() != VERSION) throw new IOException("unsupported checkpoint version");
+            long[] savedKey = new long[KEY_LENGTH];
+            for (int i = 0; i < KEY_LENGTH; i++) savedKey[i] = in.readLong();
+            if (!Arrays.equals(savedKey, key) || in.readLong() != unitCount) {
+                throw new IOException("checkpoint belongs to a different search");
+            }
+
+            AtomicLongArray done = new AtomicLongArray(wordCount(unitCount));
+            for (int i = 0; i < done.length(); i++) done.set(i, in.readLong());
+
+            if (in.readInt() != maskCount) throw new IOException("checkpoint belongs to a different search");
+            List<List<AsyncSlimeFinder.SimplePoint>> restored = new ArrayList<>(maskCount);
+            for (int k = 0; k < maskCount; k++) {
+                int n = in.readInt();
+                List<AsyncSlimeFinder.SimplePoint> points = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    points.add(new AsyncSlimeFinder.SimplePoint(in.readInt(), in.readInt(), in.readInt()));
+                }
+                restored.add(points);
+            }
+            return new SearchCheckpoint(file, key, unitCount, done, restored);
+        }
+    }
+
+    private static int wordCount(long unitCount) {
+        return (int) ((unitCount + 63) >>> 6);
+    }
+
+    boolean isDone(long unit) {
+        return ((done.get((int) (unit >>> 6)) >>> (unit & 63)) & 1L) != 0;
+    }
+
+    void markDone(long unit) {
+        done.getAndAccumulate((int) (unit >>> 6), 1L << (unit & 63), (a, b) -> a | b);
+    }
+
+    long doneCount() {
+        long n = 0;
+        for (int i = 0; i < done.length(); i++) n += Long.bitCount(done.get(i));
+        return n;
+    }
+
+    /**
+     * 完成位图的快照，必须在收集候选点之前调用
+     */
+    long[] snapshotDone() {
+        long[] words = new long[done.length()];
+        for (int i = 0; i < words.length; i++) words[i] = done.get(i);
+        return words;
+    }
+
+    /**
+     * 上次保存时每个掩码的候选点，其中可能含有未完成单元里的点，调用方需按单元过滤
+     */
+    List<List<AsyncSlimeFinder.SimplePoint>> restoredCandidates() {
+        return restored;
+    }
+
+    /**
+     * 先写临时文件再原子替换，进程在任何时刻被杀都不会留下半个断点
+     */
+    void save(long[] doneWords, List<List<AsyncSlimeFinder.SimplePoint>> candidates) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (long k : key) out.writeLong(k);
+            out.writeLong(unitCount);
+            for (long w : doneWords) out.writeLong(w);
+            out.writeInt(candidates.size());
+            for (List<AsyncSlimeFinder.SimplePoint> points : candidates) {
+                out.writeInt(points.size());
+                for (AsyncSlimeFinder.SimplePoint p : points) {
+                    out.writeInt(p.x());
+                    out.writeInt(p.z());
+                    out.writeInt(p.score());
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    Path file() {
+        return file;
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.cacezhou.slimefinder;
+
+/**
+ * 把搜索区域的中心点切成 unitSize 见方的工作单元
+ * 单元按行优先编号：index = uz * unitsPerSide + ux
+ *
+ * 覆盖的中心点为 x ∈ [startX, startX + sideLength)、z ∈ [firstZ, firstZ + sideLength)，
+ * 其中 firstZ = centerZ - searchRadius + 1，与 SlimeSlider 蛇形扫描时首步先下移一格的行为保持一致
+ */
+final class SearchGrid {
+    final int startX;
+    final int firstZ;
+    final int sideLength;
+    final int unitSize;
+    final int unitsPerSide;
+
+    private SearchGrid(int startX, int firstZ, int sideLength, int unitSize) {
+        this.startX = startX;
+        this.firstZ = firstZ;
+        this.sideLength = sideLength;
+        this.unitSize = unitSize;
+        this.unitsPerSide = (sideLength + unitSize - 1) / unitSize;
+    }
+
+    static SearchGrid of(int centerChunkX, int centerChunkZ, int searchRadius, int unitSize) {
+        return new SearchGrid(centerChunkX - searchRadius, centerChunkZ - searchRadius + 1,
+                2 * searchRadius + 1, unitSize);
+    }
+
+    long unitCount() {
+        return (long) unitsPerSide * unitsPerSide;
+    }
+
+    long totalCentres() {
+        return (long) sideLength * sideLength;
+    }
+
+    int unitX0(long unit) {
+        return startX + (int) (unit % unitsPerSide) * unitSize;
+    }
+
+    int unitZ0(long unit) {
+        return firstZ + (int) (unit / unitsPerSide) * unitSize;
+    }
+
+    // 中心点 (x, z) 所在的单元编号，调用方需保证点在搜索区域内
+    long unitOf(int x, int z) {
+        return (long) ((z - firstZ) / unitSize) * unitsPerSide + (x - startX) / unitSize;
+    }
+
+    boolean containsCentre(int x, int z) {
+        return x >= startX && x - startX < sideLength && z >= firstZ && z - firstZ < sideLength;
+    }
+
+    /**
+     * 全部单元按到 (centerX, centerZ) 所在单元的切比雪夫距离由近到远排列，即一圈一圈向外，同一圈内按行优先
+     * 调用方需保证该点在搜索区域内
+     */
+    long[] spiralOrder(int centerX, int centerZ) {
+        int cu = (centerX - startX) / unitSize;
+        int cv = (centerZ - firstZ) / unitSize;
+        int last = unitsPerSide - 1;
+        int maxRing = Math.max(Math.max(cu, last - cu), Math.max(cv, last - cv));
+        long[] order = new long[Math.toIntExact(unitCount())];
+        int n = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int v = Math.max(0, cv - ring); v <= Math.min(last, cv + ring); v++) {
+                long rowBase = (long) v * unitsPerSide;
+                if (Math.abs(v - cv) == ring) {
+                    // 上下两条边整行
+                    for (int u = Math.max(0, cu - ring); u <= Math.min(last, cu + ring); u++) order[n++] = rowBase + u;
+                } else {
+                    // 中间各行只有左右两列
+                    if (cu - ring >= 0) order[n++] = rowBase + cu - ring;
+                    if (cu + ring <= last) order[n++] = rowBase + cu + ring;
+                }
+            }
+        }
+        return order;
+    }
+
+    // 最右一列与最下一行的单元可能不满
+    int unitWidth(long unit) {
+        return Math.min(unitSize, sideLength - (int) (unit % unitsPerSide) * unitSize);
+    }
+
+    int unitHeight(long unit) {
+        return Math.min(unitSize, sideLength - (int) (unit / unitsPerSide) * unitSize);
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.cacezhou.slimefinder;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 后台搜索的句柄，由 AsyncSlimeFinder.startSearch 返回，供嵌入方在不阻塞的情况下等待结果、查看进度或取消
+ *
+ * 取消是协作式的：计算线程在开始每个工作单元之前检查一次，正在计算的单元会算完，之后的单元全部跳过；
+ * 配置了断点时，已完成的单元照常保存，之后可以用同样的参数 resume 继续
+ * 取消之后 result() 以 CancellationException 结束，不再向 resultSink 输出最终结果
+ */
+public final class SearchHandle {
+
+    private final CompletableFuture<List<SearchResult>> result = new CompletableFuture<>();
+    final ProgressTracker progress;
+    // 搜索开始计算后由 AsyncSlimeFinder 设置，之前为 null
+    private volatile Supplier<List<SearchResult>> running;
+
+    SearchHandle(ProgressTracker progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * 搜索的结果，由好到差排列；搜索出错时以该异常结束
+     * 对它调用 cancel 与调用本句柄的 cancel 效果相同
+     */
+    public CompletableFuture<List<SearchResult>> result() {
+        return result;
+    }
+
+    // 当前进度快照，可以在任意线程随时调用
+    public SearchProgress progress() {
+        return progress.snapshot();
+    }
+
+    /**
+     * 到目前为止已搜索部分的 topN，由好到差排列；搜索尚未开始计算时为空列表
+     * 需要等各计算线程算完手上的单元，调用本身可能阻塞一个单元的时间
+     */
+    public List<SearchResult> currentResults() {
+        Supplier<List<SearchResult>> supplier = running;
+        return supplier == null ? List.of() : supplier.get();
+    }
+
+    /**
+     * 追加一个进度监听器，从下一次通知开始生效
+     */
+    public SearchHandle addListener(ProgressListener listener) {
+        progress.addListener(listener);
+        return this;
+    }
+
+    /**
+     * 请求取消搜索
+     * @return 搜索此前尚未结束、本次调用使其取消时返回 true
+     */
+    public boolean cancel() {
+        return result.cancel(false);
+    }
+
+    public boolean isCancelled() {
+        return result.isCancelled();
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    void publishRunning(Supplier<List<SearchResult>> supplier) {
+        running = supplier;
+    }
+
+    void complete(List<SearchResult> results) {
+        result.complete(results);
+    }
+
+    void fail(Throwable error) {
+        result.completeExceptionally(error);
+    }
+}
@@ -0,0 +1,168 @@
+package io.github.cacezhou.slimefinder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * 一次搜索的运行指标：每个工作线程一份计数器，每完成一个单元累加一次，热循环中不做任何共享写
+ *
+ * 搜索期间注册 WorkerThroughputEvent 的周期钩子，JFR 录制时按周期提交；
+ * 配置了文件时另起守护线程，按固定间隔把快照以 JSON Lines 追加到文件，结束时再写一行最终快照
+ */
+final class SearchMetrics {
+
+    /**
+     * 单个工作线程的累计计数，只由该线程写入，其他线程读到的可能落后一个单元
+     */
+    static final class WorkerMetrics {
+        final String thread;
+        private volatile long units;
+        private volatile long chunksHashed;
+        private volatile long centresScored;
+        private volatile long admissions;
+        private volatile long fillNanos;
+        private volatile long shiftNanos;
+        private volatile long countNanos;
+
+        private WorkerMetrics(String thread) {
+            this.thread = thread;
+        }
+
+        void addUnit(long chunks, long centres, long admitted, long fill, long shift, long count) {
+            units++;
+            chunksHashed += chunks;
+            centresScored += centres;
+            admissions += admitted;
+            fillNanos += fill;
+            shiftNanos += shift;
+            countNanos += count;
+        }
+    }
+
+    private final Queue<WorkerMetrics> workers = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private final Path file;
+    private final Runnable jfrHook = this::emitJfrEvents;
+    private Thread dumpThread;
+
+    /**
+     * @param file JSON Lines 快照文件，为 null 时不写文件
+     */
+    SearchMetrics(Path file) {
+        this.file = file;
+    }
+
+    // 由工作线程在第一次领到单元时调用
+    WorkerMetrics register() {
+        WorkerMetrics m = new WorkerMetrics(Thread.currentThread().getName());
+        workers.add(m);
+        return m;
+    }
+
+    void start(int intervalSeconds) {
+        FlightRecorder.addPeriodicEvent(WorkerThroughputEvent.class, jfrHook);
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("\n无法写入指标文件: " + e.getMessage());
+            return;
+        }
+        long intervalMillis = Math.max(1, intervalSeconds) * 1000L;
+        dumpThread = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.sleep(intervalMillis);
+                    if (!dump()) break;
+                }
+            } catch (InterruptedException e) {
+                // 退出
+            }
+        });
+        dumpThread.setDaemon(true);
+        dumpThread.start();
+    }
+
+    // 搜索结束时调用，写出最终快照
+    void stop() {
+        FlightRecorder.removePeriodicEvent(jfrHook);
+        if (dumpThread == null) return;
+        dumpThread.interrupt();
+        try {
+            dumpThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dump();
+    }
+
+    private void emitJfrEvents() {
+        double seconds = elapsedSeconds();
+        for (WorkerMetrics m : workers) {
+            WorkerThroughputEvent event = new WorkerThroughputEvent();
+            event.thread = m.thread;
+            event.units = m.units;
+            event.chunksHashed = m.chunksHashed;
+            event.centresScored = m.centresScored;
+            event.admissions = m.admissions;
+            event.chunksHashedPerSecond = event.chunksHashed / seconds;
+            event.centresScoredPerSecond = event.centresScored / seconds;
+            event.fillNanos = m.fillNanos;
+            event.shiftNanos = m.shiftNanos;
+            event.countNanos = m.countNanos;
+            event.commit();
+        }
+    }
+
+    private double elapsedSeconds() {
+        return Math.max(1, System.nanoTime() - startNanos) / 1e9;
+    }
+
+    /**
+     * 追加一行快照，速率为自搜索开始的平均值
+     * @return 写入失败时返回 false，之后不再尝试
+     */
+    private boolean dump() {
+        double seconds = elapsedSeconds();
+        long[] total = new long[7];
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"elapsedMillis\":").append((long) (seconds * 1000)).append(",\"workers\":[");
+        boolean first = true;
+        for (WorkerMetrics m : workers) {
+            long[] v = {m.units, m.chunksHashed, m.centresScored, m.admissions, m.fillNanos, m.shiftNanos, m.countNanos};
+            for (int i = 0; i < v.length; i++) total[i] += v[i];
+            if (!first) sb.append(',');
+            first = false;
+            sb.append("{\"thread\":\"").append(m.thread).append("\",");
+            appendCounters(sb, v, seconds);
+            sb.append('}');
+        }
+        sb.append("],\"total\":{");
+        appendCounters(sb, total, seconds);
+        sb.append("}}\n");
+        try {
+            Files.writeString(file, sb, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return true;
+        } catch (IOException e) {
+            System.err.println("\n无法写入指标文件: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void appendCounters(StringBuilder sb, long[] v, double seconds) {
+        sb.append("\"units\":").append(v[0])
+                .append(",\"chunksHashed\":").append(v[1])
+                .append(",\"centresScored\":").append(v[2])
+                .append(",\"admissions\":").append(v[3])
+                .append(",\"fillNanos\":").append(v[4])
+                .append(",\"shiftNanos\":").append(v[5])
+                .append(",\"countNanos\":").append(v[6])
+                .append(",\"chunksHashedPerSecond\":").append(Math.round(v[1] / seconds))
+                .append(",\"centresScoredPerSecond\":").append(Math.round(v[2] / seconds));
+    }
+}
@@ -0,0 +1,227 @@
+package io.github.cacezhou.slimefinder;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * findTopSlimeClusters 的可选参数，未设置的项保持默认值
+ * setter 返回自身，便于链式调用
+ */
+public class SearchOptions {
+    // 工作单元边长上限，保证取整到 2 的幂时不会溢出
+    static final int MAX_UNIT_SIZE = 1 << 16;
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    private AsyncSlimeFinder.Engine engine = AsyncSlimeFinder.Engine.SLIDER;
+    // 工作单元边长，0 表示按引擎取默认值
+    private int unitSize;
+
+    // 计分掩码，null 表示半径为 slimeRadius 的圆
+    private AfkMask mask;
+
+    // 史莱姆区块位图缓存目录，null 表示不使用缓存
+    private Path bitmapCacheDir;
+
+    // 断点文件，null 表示不保存断点
+    private Path checkpointFile;
+    private int checkpointIntervalSeconds = 10;
+    // 从 checkpointFile 恢复，跳过已完成的工作单元
+    private boolean resume;
+
+    // 分组上界剪枝，仅对 TILE 引擎生效
+    private boolean prune;
+
+    // 结果输出，null 表示只通过返回值给出结果
+    private ResultSink resultSink;
+    // 候选点进入全局 topN 时立即写给 resultSink
+    private boolean emitCandidates;
+
+    // 运行指标的 JSON Lines 快照文件，null 表示不写文件（JFR 事件不受影响）
+    private Path metricsFile;
+    private int metricsIntervalSeconds = 5;
+
+    // 以下三项只对单次搜索（findTopSlimeClusters、startSearch、多半径搜索）生效
+    // 按离中心由近到远的顺序处理工作单元，提前停止时得到的是中心附近的最优点
+    private boolean spiral;
+    // 时间预算（毫秒），从搜索开始计时，用完后不再领取新的工作单元，返回已搜索部分的 topN；0 表示不限
+    private long timeBudgetMillis;
+    // 任一掩码找到不低于该分数的点后提前停止；0 表示不设目标
+    private int targetScore;
+
+    // 得分金字塔（热力图）的输出目录，null 表示不输出；只记录第一个掩码，开启后不剪枝，只对单次搜索生效
+    private Path heatmapDir;
+    // 金字塔层数，0 表示一直缩小到一层只剩一个图块
+    private int heatmapLevels;
+    // 除原始网格外再导出 PNG 图块
+    private boolean heatmapPng = true;
+
+    // 进度监听器，为空时不报告进度；命令行入口会加上 ProgressListener.console()
+    private final List<ProgressListener> progressListeners = new ArrayList<>();
+    private long progressIntervalMillis = 1000;
+
+    // 不打印搜索过程中的提示信息与结果摘要，错误仍写到 stderr；供 AutoTuner 的试搜等内部调用使用
+    private boolean quiet;
+
+    public AsyncSlimeFinder.Engine engine() { return engine; }
+
+    public SearchOptions engine(AsyncSlimeFinder.Engine engine) {
+        this.engine = engine;
+        return this;
+    }
+
+    public int unitSize() { return unitSize; }
+
+    /**
+     * @param unitSize 工作单元边长，0 表示按引擎取默认值
+     * @throws IllegalArgumentException 小于 0 或大于 MAX_UNIT_SIZE
+     */
+    public SearchOptions unitSize(int unitSize) {
+        if (unitSize < 0 || unitSize > MAX_UNIT_SIZE) {
+            throw new IllegalArgumentException("unitSize out of range: " + unitSize);
+        }
+        this.unitSize = unitSize;
+        return this;
+    }
+
+    public AfkMask mask() { return mask; }
+
+    public SearchOptions mask(AfkMask mask) {
+        this.mask = mask;
+        return this;
+    }
+
+    public Path bitmapCacheDir() { return bitmapCacheDir; }
+
+    public SearchOptions bitmapCacheDir(Path bitmapCacheDir) {
+        this.bitmapCacheDir = bitmapCacheDir;
+        return this;
+    }
+
+    public Path checkpointFile() { return checkpointFile; }
+
+    public SearchOptions checkpointFile(Path checkpointFile) {
+        this.checkpointFile = checkpointFile;
+        return this;
+    }
+
+    public int checkpointIntervalSeconds() { return checkpointIntervalSeconds; }
+
+    public SearchOptions checkpointIntervalSeconds(int checkpointIntervalSeconds) {
+        this.checkpointIntervalSeconds = checkpointIntervalSeconds;
+        return this;
+    }
+
+    public boolean resume() { return resume; }
+
+    public SearchOptions resume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+
+    public boolean prune() { return prune; }
+
+    public SearchOptions prune(boolean prune) {
+        this.prune = prune;
+        return this;
+    }
+
+    public ResultSink resultSink() { return resultSink; }
+
+    public SearchOptions resultSink(ResultSink resultSink) {
+        this.resultSink = resultSink;
+        return this;
+    }
+
+    public boolean emitCandidates() { return emitCandidates; }
+
+    public SearchOptions emitCandidates(boolean emitCandidates) {
+        this.emitCandidates = emitCandidates;
+        return this;
+    }
+
+    public Path metricsFile() { return metricsFile; }
+
+    public SearchOptions metricsFile(Path metricsFile) {
+        this.metricsFile = metricsFile;
+        return this;
+    }
+
+    public int metricsIntervalSeconds() { return metricsIntervalSeconds; }
+
+    public SearchOptions metricsIntervalSeconds(int metricsIntervalSeconds) {
+        this.metricsIntervalSeconds = metricsIntervalSeconds;
+        return this;
+    }
+
+    public List<ProgressListener> progressListeners() { return progressListeners; }
+
+    // 可多次调用，监听器按添加顺序依次通知
+    public SearchOptions addProgressListener(ProgressListener listener) {
+        this.progressListeners.add(listener);
+        return this;
+    }
+
+    public long progressIntervalMillis() { return progressIntervalMillis; }
+
+    public SearchOptions progressIntervalMillis(long progressIntervalMillis) {
+        this.progressIntervalMillis = progressIntervalMillis;
+        return this;
+    }
+
+    public boolean quiet() { return quiet; }
+
+    public SearchOptions quiet(boolean quiet) {
+        this.quiet = quiet;
+        return this;
+    }
+
+    // 搜索的提示信息写到这里：quiet 时丢弃，否则为当前的 System.out
+    PrintStream log() {
+        return quiet ? DISCARD : System.out;
+    }
+
+    public boolean spiral() { return spiral; }
+
+    public SearchOptions spiral(boolean spiral) {
+        this.spiral = spiral;
+        return this;
+    }
+
+    public long timeBudgetMillis() { return timeBudgetMillis; }
+
+    public SearchOptions timeBudgetMillis(long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+        return this;
+    }
+
+    public int targetScore() { return targetScore; }
+
+    public SearchOptions targetScore(int targetScore) {
+        this.targetScore = targetScore;
+        return this;
+    }
+
+    public Path heatmapDir() { return heatmapDir; }
+
+    public SearchOptions heatmapDir(Path heatmapDir) {
+        this.heatmapDir = heatmapDir;
+        return this;
+    }
+
+    public int heatmapLevels() { return heatmapLevels; }
+
+    public SearchOptions heatmapLevels(int heatmapLevels) {
+        this.heatmapLevels = heatmapLevels;
+        return this;
+    }
+
+    public boolean heatmapPng() { return heatmapPng; }
+
+    public SearchOptions heatmapPng(boolean heatmapPng) {
+        this.heatmapPng = heatmapPng;
+        return this;
+    }
+}
@@ -0,0 +1,24 @@
+package io.github.cacezhou.slimefinder;
+
+/**
+ * 某一时刻的搜索进度快照，由 SearchHandle.progress() 取得或传给 ProgressListener
+ * @param completed 已计算的中心点数，断点中已完成的单元也计入
+ * @param total 中心点总数
+ * @param elapsedMillis 搜索开始以来经过的毫秒数
+ */
+public record SearchProgress(long completed, long total, long elapsedMillis) {
+
+    public double fraction() {
+        return total == 0 ? 1.0 : (double) completed / total;
+    }
+
+    // 按目前的平均速度推算剩余时间（毫秒），尚无进度时返回 -1
+    public long etaMillis() {
+        if (completed <= 0) return -1;
+        return (long) (elapsedMillis / fraction()) - elapsedMillis;
+    }
+
+    public boolean isComplete() {
+        return completed >= total;
+    }
+}
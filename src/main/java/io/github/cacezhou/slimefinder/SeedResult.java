@@ -0,0 +1,19 @@
+package io.github.cacezhou.slimefinder;
+
+import java.util.List;
+
+/**
+ * 批量搜索中单个种子的结果，results 由好到差排列
+ */
+record SeedResult(long seed, List<SearchResult> results) {
+
+    int bestCount() {
+        return results.isEmpty() ? 0 : results.get(0).count();
+    }
+
+    long totalCount() {
+        long total = 0;
+        for (SearchResult r : results) total += r.count();
+        return total;
+    }
+}
@@ -0,0 +1,209 @@
+package io.github.cacezhou.slimefinder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * 持久化的史莱姆区块位图，每个区块 1 bit，按种子保存在磁盘上并通过内存映射读取
+ * 同一个种子换 slimeRadius、topN 或中心点重新搜索时，不必再计算任何区块
+ *
+ * 文件格式（小端序）：
+ * <pre>
+ * 0   int  magic "SLMB"
+ * 4   int  版本号
+ * 8   long 种子
+ * 16  int  originX  区域左上角区块 x
+ * 20  int  originZ  区域左上角区块 z
+ * 24  int  width
+ * 28  int  height
+ * 32  int  wordsPerRow
+ * 64  long[height * wordsPerRow] 位图，每行第 i 位对应区块 originX + i
+ * </pre>
+ * magic 最后写入，写到一半被中断的文件不会被当作有效缓存
+ * 位图部分与 OffHeapBitMatrix.map 的文件布局相同，直接映射为一个 height x width 的 OffHeapBitMatrix
+ */
+public final class SlimeBitmapCache {
+    private static final int MAGIC = 0x534C4D42;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+
+    public final long seed;
+    public final int originX;
+    public final int originZ;
+    public final int width;
+    public final int height;
+    // 只读映射，第 row 行第 col 列对应区块 (originX + col, originZ + row)
+    private final OffHeapBitMatrix bits;
+
+    private SlimeBitmapCache(long seed, int originX, int originZ, int width, int height, OffHeapBitMatrix bits) {
+        this.seed = seed;
+        this.originX = originX;
+        this.originZ = originZ;
+        this.width = width;
+        this.height = height;
+        this.bits = bits;
+    }
+
+    private static int wordsPerRow(int width) {
+        return (width + 63) >>> 6;
+    }
+
+    public static Path fileFor(Path dir, long seed) {
+        return dir.resolve(seed + ".slimebits");
+    }
+
+    /**
+     * 打开种子对应的缓存；文件不存在、损坏或不覆盖所需区域时重新生成
+     * @param minX 所需区域左上角区块 x
+     * @param minZ 所需区域左上角区块 z
+     * @param threads 生成时使用的线程数
+     */
+    public static SlimeBitmapCache openOrBuild(Path dir, long seed, int minX, int minZ, int width, int height,
+                                              int threads) throws IOException {
+        Path file = fileFor(dir, seed);
+        if (Files.exists(file)) {
+            try {
+                SlimeBitmapCache cache = open(file);
+                if (cache.seed == seed && cache.contains(minX, minZ, width, height)) return cache;
+                System.out.println("位图缓存未覆盖本次搜索区域，重新生成...");
+            } catch (IOException e) {
+                System.out.println("位图缓存无效 (" + e.getMessage() + ")，重新生成...");
+            }
+        }
+        Files.createDirectories(dir);
+        build(file, seed, minX, minZ, width, height, threads);
+        return open(file);
+    }
+
+    public static SlimeBitmapCache open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt(0) != MAGIC) {
+                throw new IOException("not a slime bitmap file");
+            }
+            if (header.getInt(4) != VERSION) throw new IOException("unsupported version " + header.getInt(4));
+
+            long seed = header.getLong(8);
+            int originX = header.getInt(16);
+            int originZ = header.getInt(20);
+            int width = header.getInt(24);
+            int height = header.getInt(28);
+            if (width <= 0 || height <= 0 || header.getInt(32) != wordsPerRow(width)) {
+                throw new IOException("corrupt header");
+            }
+            if (channel.size() < dataBytes(width, height) + HEADER_BYTES) throw new IOException("truncated file");
+
+            OffHeapBitMatrix bits = OffHeapBitMatrix.map(channel, FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+                    height, width);
+            return new SlimeBitmapCache(seed, originX, originZ, width, height, bits);
+        }
+    }
+
+    /**
+     * 计算区域内所有区块并写入文件，按行并行生成
+     */
+    public static void build(Path file, long seed, int originX, int originZ, int width, int height,
+                             int threads) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OffHeapBitMatrix bits = OffHeapBitMatrix.map(channel, FileChannel.MapMode.READ_WRITE, HEADER_BYTES,
+                    height, width);
+            int words = wordsPerRow(width);
+
+            SlimeChunkOracle oracle = new SlimeChunkOracle(seed);
+            long[] xTerms = new long[width];
+            oracle.fillXTerms(xTerms, originX);
+
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.submit(() -> IntStream.range(0, height).parallel().forEach(row -> {
+                    long[] rowBits = new long[words];
+                    SlimeChunkOracle.fillRowBits(xTerms, 0, width, SlimeChunkOracle.zTerm(originZ + row), rowBits);
+                    bits.writeRow(row, rowBits);
+                })).get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IOException("failed to build slime bitmap", e);
+            } finally {
+                pool.shutdown();
+            }
+            bits.force();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(4, VERSION);
+            header.putLong(8, seed);
+            header.putInt(16, originX);
+            header.putInt(20, originZ);
+            header.putInt(24, width);
+            header.putInt(28, height);
+            header.putInt(32, words);
+            channel.write(header, 0);
+            channel.force(false);
+
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(0, MAGIC);
+            channel.write(magic, 0);
+            channel.force(false);
+        }
+    }
+
+    private static long dataBytes(int width, int height) {
+        return (long) wordsPerRow(width) * height * Long.BYTES;
+    }
+
+    public boolean contains(int minX, int minZ, int w, int h) {
+        return minX >= originX && minZ >= originZ
+                && (long) minX + w <= (long) originX + width
+                && (long) minZ + h <= (long) originZ + height;
+    }
+
+    /**
+     * 整片位图，只读；可以直接交给按 OffHeapBitMatrix 处理大区域的代码
+     * 第 row 行第 col 列对应区块 (originX + col, originZ + row)
+     */
+    public OffHeapBitMatrix bits() {
+        return bits;
+    }
+
+    public boolean isSlimeChunk(int chunkX, int chunkZ) {
+        return bits.get(chunkZ - originZ, chunkX - originX);
+    }
+
+    /**
+     * 把 z 行中从 chunkX 开始的 count 个区块按位写入 dst，dst 的第 i 位对应 chunkX + i
+     * 调用方需保证该范围在缓存区域内
+     */
+    public void readRow(int chunkZ, int chunkX, int count, long[] dst) {
+        int row = chunkZ - originZ;
+        int col = chunkX - originX;
+        int dstWords = (count + 63) >>> 6;
+        for (int i = 0; i < dstWords; i++) dst[i] = bits.wordAt(row, col + (i << 6));
+        int tailBits = count & 63;
+        if (tailBits != 0) dst[dstWords - 1] &= (1L << tailBits) - 1;
+    }
+
+    /**
+     * 把 x 列中从 chunkZ 开始的 count 个区块按位写入 dst，dst 的第 i 位对应 chunkZ + i
+     * 调用方需保证该范围在缓存区域内
+     */
+    public void readColumn(int chunkX, int chunkZ, int count, long[] dst) {
+        int col = chunkX - originX;
+        int row = chunkZ - originZ;
+        for (int w = 0; (w << 6) < count; w++) {
+            int end = Math.min(64, count - (w << 6));
+            long column = 0;
+            for (int i = 0; i < end; i++, row++) {
+                if (bits.get(row, col)) column |= 1L << i;
+            }
+            dst[w] = column;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.cacezhou.slimefinder;
+
+/**
+ * 史莱姆区块判定器
+ * 结果与 Main.isSlimeChunk 逐位一致，但不创建 Random、不走 Random 的原子种子更新，
+ * 而是直接内联 48 位 LCG 的种子扰乱、一次步进以及 nextInt(10) 的拒绝采样
+ *
+ * 种子 seed + f(x) + g(z) 可以拆成只与 x 有关的一项和只与 z 有关的一项，
+ * 调用方按条带把这两项缓存进 long[]，每个区块只剩一次加法、一次异或和一次 LCG 步进
+ */
+public final class SlimeChunkOracle {
+    // java.util.Random 的 LCG 参数
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // isSlimeChunk 中的异或常量与 Random.setSeed 的扰乱常量合并为一次异或
+    private static final long SCRAMBLE = 987234911L ^ MULTIPLIER;
+
+    public final long seed;
+
+    public SlimeChunkOracle(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * 种子中只与 x 有关的部分（已包含世界种子）
+     * int 乘法溢出的方式与 isSlimeChunk 保持一致
+     */
+    public long xTerm(int chunkX) {
+        return seed + (long) (chunkX * chunkX * 4987142) + (long) (chunkX * 5947611);
+    }
+
+    /**
+     * 种子中只与 z 有关的部分
+     */
+    public static long zTerm(int chunkZ) {
+        return (long) (chunkZ * chunkZ) * 4392871L + (long) (chunkZ * 389711);
+    }
+
+    /**
+     * 把 [fromX, fromX + dst.length) 的 xTerm 写入 dst
+     */
+    public void fillXTerms(long[] dst, int fromX) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = xTerm(fromX + i);
+        }
+    }
+
+    /**
+     * 把 [fromZ, fromZ + dst.length) 的 zTerm 写入 dst
+     */
+    public static void fillZTerms(long[] dst, int fromZ) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = zTerm(fromZ + i);
+        }
+    }
+
+    /**
+     * 把 z 行中 xTerms[from, from + count) 对应的区块按位写入 dst，dst 的第 i 位对应 xTerms[from + i]
+     * 位布局与 SlimeBitmapCache.readRow 相同，写满 (count + 63) / 64 个 long，末尾多余的位为 0
+     */
+    public static void fillRowBits(long[] xTerms, int from, int count, long zTerm, long[] dst) {
+        for (int w = 0; (w << 6) < count; w++) {
+            int base = from + (w << 6);
+            int end = Math.min(64, count - (w << 6));
+            long bits = 0;
+            for (int i = 0; i < end; i++) {
+                if (isSlime(xTerms[base + i], zTerm)) bits |= 1L << i;
+            }
+            dst[w] = bits;
+        }
+    }
+
+    /**
+     * 把 x 列中 zTerms[from, from + count) 对应的区块按位写入 dst，dst 的第 i 位对应 zTerms[from + i]
+     */
+    public static void fillColumnBits(long xTerm, long[] zTerms, int from, int count, long[] dst) {
+        for (int w = 0; (w << 6) < count; w++) {
+            int base = from + (w << 6);
+            int end = Math.min(64, count - (w << 6));
+            long bits = 0;
+            for (int i = 0; i < end; i++) {
+                if (isSlime(xTerm, zTerms[base + i])) bits |= 1L << i;
+            }
+            dst[w] = bits;
+        }
+    }
+
+    /**
+     * 由预先算好的两项判断是否为史莱姆区块
+     * 等价于 new Random((xTerm + zTerm) ^ 987234911L).nextInt(10) == 0
+     */
+    public static boolean isSlime(long xTerm, long zTerm) {
+        long s = (xTerm + zTerm) ^ SCRAMBLE;
+        s = (s * MULTIPLIER + ADDEND) & MASK;
+        int u = (int) (s >>> 17); // next(31)
+        int r = u % 10;
+        // nextInt(10) 的拒绝采样：u 落在最后不完整的一段时重新取数，概率约 4e-9
+        while (u - r + 9 < 0) {
+            s = (s * MULTIPLIER + ADDEND) & MASK;
+            u = (int) (s >>> 17);
+            r = u % 10;
+        }
+        return r == 0;
+    }
+
+    public boolean isSlimeChunk(int chunkX, int chunkZ) {
+        return isSlime(xTerm(chunkX), zTerm(chunkZ));
+    }
+}
@@ -1,15 +1,17 @@
 package io.github.cacezhou.slimefinder;
 
-import java.util.Random;
+import java.util.Arrays;
 
 public class SlimeSlider {
     private final BitMatrix slideMatrix;
-    private final BitMatrix circleMatrix;
+    // 计分掩码，半径较小的掩码在窗口内偏移 maskOffsets[k] 行列，使所有掩码同心
+    private final BitMatrix[] masks;
+    private final int[] maskOffsets;
 
     // 搜索范围的行数（单位：区块）
     private final int searchRows;
 
-    // 挂机加载窗口掩码的半径
+    // 挂机加载窗口掩码的半径（多个掩码时取最大值）
     private final int radius;
     // 直径
     private final int maskDim;
@@ -22,11 +24,56 @@ public class SlimeSlider {
     private final int[] leftTop;
 
     public final long seed;
+    private final SlimeChunkOracle oracle;
+
+    // 条带内的种子项缓存
+    // zTerms[i] 对应 z = zTermOrigin + i，覆盖整个条带可能出现的行
+    private final long[] zTerms;
+    private final int zTermOrigin;
+    // windowXTerms[c] 对应当前窗口第 c 列，向右滑动时整体左移一格
+    private final long[] windowXTerms;
+
+    // 可选的磁盘位图缓存，覆盖整个条带时直接从映射内存读取区块
+    private final SlimeBitmapCache cache;
+    // 新进入窗口的一行或一列先按位算进这里，再整体写入 slideMatrix
+    private final long[] rowBits;
+
     private Direction currSlideDirection = Direction.DOWN;
 
     // 扫描状态记录
     private int stepsTakenInRow = -1; // 当前列已经走了多少步
 
+    private final ScoreMode scoreMode;
+
+    // 增量计分用：每个掩码每个连续段的边缘格子（已换算为窗口逻辑坐标）
+    // 竖直方向的段按列划分，水平方向的段按行划分
+    private final EdgeCells[] topEdges;
+    private final EdgeCells[] bottomEdges;
+    private final EdgeCells[] leftEdges;
+    private final EdgeCells[] rightEdges;
+
+    // 每个掩码在当前窗口的得分，INCREMENTAL 模式下逐步累计
+    private final int[] scores;
+
+    // 指标：生成的区块数，以及每 PHASE_SAMPLE_MASK + 1 步抽样一次的各阶段耗时
+    // 逐步计时的开销与一步本身相当，抽样后几乎不影响吞吐量
+    private static final int PHASE_SAMPLE_MASK = 63;
+    private long steps;
+    private long chunksHashed;
+    private long sampledFillNanos;
+    private long sampledShiftNanos;
+    private long sampledCountNanos;
+
+    public enum ScoreMode {
+        // 每步对整个窗口重新做 popcount，O(r²/64) 个 word
+        RECOUNT,
+        // 维护累计得分，每步只检查移出与移入的边缘格子，O(r) 次位测试
+        INCREMENTAL
+    }
+
+    // 一组 (row, col) 坐标
+    private record EdgeCells(int[] rows, int[] cols) {}
+
     public enum Direction {
         // Down (z++) -> shiftVertical(1) -> 数据上移，新行在逻辑底部
         // Up   (z--) -> shiftVertical(-1) -> 数据下移，新行在逻辑顶部
@@ -53,6 +100,86 @@ public class SlimeSlider {
                        int rowCount,
                        int circleRadius,
                        long seed) {
+        this(startChunkX, startChunkZ, rowCount, circleRadius, seed, ScoreMode.RECOUNT);
+    }
+
+    /**
+     * 初始化滑行窗口
+     * @param startChunkX 起始点的区块x坐标
+     * @param startChunkZ 起始点的区块z坐标
+     * @param rowCount 每扫描多少行向右移一列
+     * @param circleRadius 玩家刷怪范围的半径
+     * @param seed 地图种子
+     * @param scoreMode 计分方式
+     */
+    public SlimeSlider(int startChunkX,
+                       int startChunkZ,
+                       int rowCount,
+                       int circleRadius,
+                       long seed,
+                       ScoreMode scoreMode) {
+        this(startChunkX, startChunkZ, rowCount, circleRadius, seed, scoreMode, null);
+    }
+
+    /**
+     * 初始化滑行窗口
+     * @param startChunkX 起始点的区块x坐标
+     * @param startChunkZ 起始点的区块z坐标
+     * @param rowCount 每扫描多少行向右移一列
+     * @param circleRadius 玩家刷怪范围的半径
+     * @param seed 地图种子
+     * @param scoreMode 计分方式
+     * @param cache 位图缓存，为 null 时实时计算区块；调用方需保证缓存覆盖滑块经过的全部区块
+     */
+    public SlimeSlider(int startChunkX,
+                       int startChunkZ,
+                       int rowCount,
+                       int circleRadius,
+                       long seed,
+                       ScoreMode scoreMode,
+                       SlimeBitmapCache cache) {
+        this(startChunkX, startChunkZ, rowCount, AfkMask.circle(circleRadius), seed, scoreMode, cache);
+    }
+
+    /**
+     * 初始化滑行窗口
+     * @param startChunkX 起始点的区块x坐标
+     * @param startChunkZ 起始点的区块z坐标
+     * @param rowCount 每扫描多少行向右移一列
+     * @param mask 计分掩码，窗口边长为 2 * mask.radius() + 1
+     * @param seed 地图种子
+     * @param scoreMode 计分方式
+     * @param cache 位图缓存，为 null 时实时计算区块；调用方需保证缓存覆盖滑块经过的全部区块
+     */
+    public SlimeSlider(int startChunkX,
+                       int startChunkZ,
+                       int rowCount,
+                       AfkMask mask,
+                       long seed,
+                       ScoreMode scoreMode,
+                       SlimeBitmapCache cache) {
+        this(startChunkX, startChunkZ, rowCount, new AfkMask[]{mask}, seed, scoreMode, cache);
+    }
+
+    /**
+     * 初始化滑行窗口，每一步同时给出多个掩码的得分，窗口与区块按最大的掩码只生成一次
+     * @param startChunkX 起始点的区块x坐标
+     * @param startChunkZ 起始点的区块z坐标
+     * @param rowCount 每扫描多少行向右移一列
+     * @param masks 一个或多个计分掩码，slideNext 返回第一个掩码的得分，其余用 getScore 读取
+     * @param seed 地图种子
+     * @param scoreMode 计分方式
+     * @param cache 位图缓存，为 null 时实时计算区块；调用方需保证缓存覆盖滑块经过的全部区块
+     */
+    public SlimeSlider(int startChunkX,
+                       int startChunkZ,
+                       int rowCount,
+                       AfkMask[] masks,
+                       long seed,
+                       ScoreMode scoreMode,
+                       SlimeBitmapCache cache) {
+        int circleRadius = 0;
+        for (AfkMask mask : masks) circleRadius = Math.max(circleRadius, mask.radius());
         this.searchRows = rowCount;
         this.radius = circleRadius;
         this.maskDim = 2 * circleRadius + 1;
@@ -64,62 +191,180 @@ public class SlimeSlider {
         this.leftTop = new int[]{startChunkX - radius, startChunkZ - radius};
 
         this.slideMatrix = BitMatrix.create(maskDim, maskDim);
-        this.circleMatrix = BitMatrix.createCircleEven(circleRadius);
+        this.masks = new BitMatrix[masks.length];
+        this.maskOffsets = new int[masks.length];
+        for (int k = 0; k < masks.length; k++) {
+            this.masks[k] = masks[k].bits();
+            this.maskOffsets[k] = circleRadius - masks[k].radius();
+        }
+
+        // 条带内 z 的取值范围是 [startChunkZ - r, startChunkZ + rowCount + r]
+        this.oracle = new SlimeChunkOracle(seed);
+        this.zTermOrigin = leftTop[1];
+        this.zTerms = new long[rowCount + maskDim];
+        SlimeChunkOracle.fillZTerms(zTerms, zTermOrigin);
+        this.windowXTerms = new long[maskDim];
+        oracle.fillXTerms(windowXTerms, leftTop[0]);
+        this.cache = cache;
+        this.rowBits = new long[(maskDim + 63) >>> 6];
 
         // 预热填充整个 slideMatrix
-        Random tempRan = new Random();
         for (int r = 0; r < maskDim; r++) {
-            for (int c = 0; c < maskDim; c++) {
-                boolean isSlime = Main.isSlimeChunk(tempRan, seed, leftTop[0] + c, leftTop[1] + r);
-                slideMatrix.set(r, c, isSlime);
+            fillRow(r);
+        }
+
+        this.scoreMode = scoreMode;
+        this.topEdges = new EdgeCells[masks.length];
+        this.bottomEdges = new EdgeCells[masks.length];
+        this.leftEdges = new EdgeCells[masks.length];
+        this.rightEdges = new EdgeCells[masks.length];
+        this.scores = new int[masks.length];
+        for (int k = 0; k < masks.length; k++) {
+            BitMatrix mask = this.masks[k];
+            int offset = maskOffsets[k];
+            topEdges[k] = collectEdge(mask, -1, 0, offset);
+            bottomEdges[k] = collectEdge(mask, 1, 0, offset);
+            leftEdges[k] = collectEdge(mask, 0, -1, offset);
+            rightEdges[k] = collectEdge(mask, 0, 1, offset);
+            scores[k] = slideMatrix.countIntersectionAt(offset, offset, mask);
+        }
+    }
+
+    /**
+     * 收集掩码中沿 (dRow, dCol) 方向的边缘格子：自身为 1，而该方向上的相邻格为 0 或越界
+     * 例如 (-1, 0) 得到每列中每个连续段的顶端
+     * @param offset 掩码在窗口内的偏移，加到返回的行列坐标上
+     */
+    private static EdgeCells collectEdge(BitMatrix mask, int dRow, int dCol, int offset) {
+        int n = 0;
+        int[] rows = new int[mask.rows_count * mask.cols_count];
+        int[] cols = new int[rows.length];
+        for (int r = 0; r < mask.rows_count; r++) {
+            for (int c = 0; c < mask.cols_count; c++) {
+                if (!mask.get(r, c)) continue;
+                int nr = r + dRow;
+                int nc = c + dCol;
+                boolean inside = nr >= 0 && nr < mask.rows_count && nc >= 0 && nc < mask.cols_count;
+                if (inside && mask.get(nr, nc)) continue;
+                rows[n] = r + offset;
+                cols[n] = c + offset;
+                n++;
             }
         }
+        return new EdgeCells(Arrays.copyOf(rows, n), Arrays.copyOf(cols, n));
     }
 
     /**
      * 蛇形滑动到下一个位置并返回密有效区块数
      * @return 当前位置可加载的史莱姆区块数
      */
-    public int slideNext(Random random) {
+    public int slideNext() {
+        boolean timed = (++steps & PHASE_SAMPLE_MASK) == 0;
+        long t0 = timed ? System.nanoTime() : 0;
+        int score;
+
         // 判断是否需要转向（到达列边界）
         if (stepsTakenInRow >= searchRows - 1) {
 
+            // 左边缘在移动后离开掩码，先扣除
+            leave(leftEdges);
+            long t1 = timed ? System.nanoTime() : 0;
+
             // 向右横移一步
             moveWindow(Direction.RIGHT);
             slideMatrix.shiftHorizontal(-Direction.RIGHT.sign); // 窗口向右，数据左移
+            long t2 = timed ? System.nanoTime() : 0;
 
             // 填充最右侧新出现的一列
             int newCol = maskDim - 1;
-            for (int r = 0; r < maskDim; r++) {
-                // x 坐标为 leftTop[0] + newCol, z 坐标随行变
-                boolean isSlime = Main.isSlimeChunk(random, seed, leftTop[0] + newCol, leftTop[1] + r);
-                slideMatrix.set(r, newCol, isSlime);
-            }
+            System.arraycopy(windowXTerms, 1, windowXTerms, 0, newCol);
+            windowXTerms[newCol] = oracle.xTerm(leftTop[0] + newCol);
+            fillColumn(newCol);
+            long t3 = timed ? System.nanoTime() : 0;
 
             // 转向并重置计数
             currSlideDirection = currSlideDirection.getOpposite();
             stepsTakenInRow = 0;
 
             // 返回当前位置结果
-            return slideMatrix.countIntersection(circleMatrix);
+            score = enter(rightEdges);
+            if (timed) recordPhases(t0, t1, t2, t3);
+            return score;
         }
 
+        // 向下时段的顶端离开、底端下方一格进入；向上时相反
+        EdgeCells[] leaving = (currSlideDirection == Direction.DOWN) ? topEdges : bottomEdges;
+        EdgeCells[] entering = (currSlideDirection == Direction.DOWN) ? bottomEdges : topEdges;
+        leave(leaving);
+        long t1 = timed ? System.nanoTime() : 0;
+
         // 正常垂直滑动
         moveWindow(currSlideDirection);
         slideMatrix.shiftVertical(currSlideDirection.sign);
+        long t2 = timed ? System.nanoTime() : 0;
 
         // 确定新数据填入哪一行
         int fillRow = (currSlideDirection == Direction.DOWN) ? (maskDim - 1) : 0;
 
         // 填充新行
-        for (int c = 0; c < maskDim; c++) {
-            // z 坐标为 leftTop[1] + fillRow, x 坐标随列变
-            boolean isSlime = Main.isSlimeChunk(random, seed, leftTop[0] + c, leftTop[1] + fillRow);
-            slideMatrix.set(fillRow, c, isSlime);
-        }
+        fillRow(fillRow);
+        long t3 = timed ? System.nanoTime() : 0;
 
         stepsTakenInRow++;
-        return slideMatrix.countIntersection(circleMatrix);
+        score = enter(entering);
+        if (timed) recordPhases(t0, t1, t2, t3);
+        return score;
+    }
+
+    // INCREMENTAL 模式下，在位移前扣除即将离开各掩码的边缘格子
+    private void leave(EdgeCells[] edges) {
+        if (scoreMode != ScoreMode.INCREMENTAL) return;
+        for (int k = 0; k < edges.length; k++) {
+            scores[k] -= slideMatrix.countSetAt(edges[k].rows, edges[k].cols);
+        }
+    }
+
+    // 在位移并填充后加上新进入各掩码的边缘格子（RECOUNT 模式下整窗重数），返回第一个掩码的得分
+    private int enter(EdgeCells[] edges) {
+        for (int k = 0; k < edges.length; k++) {
+            if (scoreMode == ScoreMode.INCREMENTAL) {
+                scores[k] += slideMatrix.countSetAt(edges[k].rows, edges[k].cols);
+            } else {
+                scores[k] = slideMatrix.countIntersectionAt(maskOffsets[k], maskOffsets[k], masks[k]);
+            }
+        }
+        return scores[0];
+    }
+
+    // t0..t1 扣除离开的边缘，t1..t2 位移，t2..t3 填充，t3..现在 计分
+    private void recordPhases(long t0, long t1, long t2, long t3) {
+        long t4 = System.nanoTime();
+        sampledCountNanos += (t1 - t0) + (t4 - t3);
+        sampledShiftNanos += t2 - t1;
+        sampledFillNanos += t3 - t2;
+    }
+
+    // 填充窗口第 row 行：z 坐标为 leftTop[1] + row, x 坐标随列变
+    private void fillRow(int row) {
+        if (cache != null) {
+            cache.readRow(leftTop[1] + row, leftTop[0], maskDim, rowBits);
+        } else {
+            chunksHashed += maskDim;
+            long zTerm = zTerms[leftTop[1] + row - zTermOrigin];
+            SlimeChunkOracle.fillRowBits(windowXTerms, 0, maskDim, zTerm, rowBits);
+        }
+        slideMatrix.setRowWords(row, rowBits, 0);
+    }
+
+    // 填充窗口第 col 列：x 坐标为 leftTop[0] + col, z 坐标随行变
+    private void fillColumn(int col) {
+        if (cache != null) {
+            cache.readColumn(leftTop[0] + col, leftTop[1], maskDim, rowBits);
+        } else {
+            chunksHashed += maskDim;
+            SlimeChunkOracle.fillColumnBits(windowXTerms[col], zTerms, leftTop[1] - zTermOrigin, maskDim, rowBits);
+        }
+        slideMatrix.setColumnWords(col, rowBits, 0);
     }
 
     private void moveWindow(Direction dir) {
@@ -133,8 +378,28 @@ public class SlimeSlider {
         }
     }
 
+    /**
+     * 第 k 个掩码在当前位置的得分，slideNext 之后有效；getScore(0) 即 slideNext 的返回值
+     */
+    public int getScore(int k) { return scores[k]; }
+
     public int[] getCentre() { return centre.clone(); }
 
+    // 热循环中使用，不分配数组
+    public int getCentreX() { return centre[0]; }
+
+    public int getCentreZ() { return centre[1]; }
+
+    // 实时计算的区块数，使用位图缓存时读取的区块不计入
+    public long getChunksHashed() { return chunksHashed; }
+
+    // 以下三项由抽样估算，单位为纳秒：填充新行/列、BitMatrix 位移、计分（countSetAt 或 countIntersection）
+    public long getFillNanos() { return sampledFillNanos * (PHASE_SAMPLE_MASK + 1); }
+
+    public long getShiftNanos() { return sampledShiftNanos * (PHASE_SAMPLE_MASK + 1); }
+
+    public long getCountNanos() { return sampledCountNanos * (PHASE_SAMPLE_MASK + 1); }
+
     public BitMatrix getSlideMatrix() {
         BitMatrix matrixToReturn = BitMatrix.create(maskDim, maskDim);
         slideMatrix.extractSubMatrix(0, 0, matrixToReturn);
@@ -0,0 +1,141 @@
+package io.github.cacezhou.slimefinder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 逐行写出结果的 ResultSink，每写完一行立即 flush，下游可以边搜索边读取
+ *
+ * JSONL：每行一个对象，type 为 candidate 或 result；candidate 行比 result 行少 rank 与 matrix，其余字段相同
+ * CSV：首行表头 type,seed,slimeRadius,rank,x,z,blockX,blockZ,count,matrix，candidate 行的 rank 为空
+ *
+ * 只有 includeMatrix 为 true 时才生成区块视图：JSONL 中是每行一个字符串的数组，
+ * CSV 中各行以 / 连接，史莱姆区块为 1，其余为 .
+ *
+ * 写入失败不会打断搜索，第一个异常在 close 时抛出
+ */
+public final class StreamingResultSink implements ResultSink {
+
+    public enum Format { JSONL, CSV }
+
+    private final Writer out;
+    private final Format format;
+    private final boolean includeMatrix;
+    // 为 false 时 close 只 flush，不关闭底层流（例如 System.out）
+    private final boolean ownsStream;
+    private IOException error;
+
+    private StreamingResultSink(Writer out, Format format, boolean includeMatrix, boolean ownsStream) {
+        this.out = out;
+        this.format = format;
+        this.includeMatrix = includeMatrix;
+        this.ownsStream = ownsStream;
+        if (format == Format.CSV) writeLine("type,seed,slimeRadius,rank,x,z,blockX,blockZ,count,matrix");
+    }
+
+    public static StreamingResultSink toFile(Path file, Format format, boolean includeMatrix) throws IOException {
+        return new StreamingResultSink(Files.newBufferedWriter(file, StandardCharsets.UTF_8), format, includeMatrix, true);
+    }
+
+    /**
+     * 写到已有的流，close 时不关闭该流
+     */
+    public static StreamingResultSink toStream(OutputStream stream, Format format, boolean includeMatrix) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        return new StreamingResultSink(writer, format, includeMatrix, false);
+    }
+
+    @Override
+    public synchronized void candidate(long seed, int slimeRadius, int x, int z, int score) {
+        if (format == Format.JSONL) {
+            writeLine("{\"type\":\"candidate\",\"seed\":" + seed + ",\"slimeRadius\":" + slimeRadius
+                    + ",\"x\":" + x + ",\"z\":" + z + ",\"blockX\":" + x * 16 + ",\"blockZ\":" + z * 16
+                    + ",\"count\":" + score + "}");
+        } else {
+            writeLine("candidate," + seed + "," + slimeRadius + ",," + x + "," + z + "," + x * 16 + "," + z * 16
+                    + "," + score + ",");
+        }
+    }
+
+    @Override
+    public synchronized void result(int rank, SearchResult r) {
+        StringBuilder sb = new StringBuilder(64);
+        if (format == Format.JSONL) {
+            sb.append("{\"type\":\"result\",\"seed\":").append(r.seed())
+                    .append(",\"slimeRadius\":").append(r.slimeRadius())
+                    .append(",\"rank\":").append(rank)
+                    .append(",\"x\":").append(r.x())
+                    .append(",\"z\":").append(r.z())
+                    .append(",\"blockX\":").append(r.x() * 16)
+                    .append(",\"blockZ\":").append(r.z() * 16)
+                    .append(",\"count\":").append(r.count());
+            if (includeMatrix) {
+                BitMatrix m = r.matrix();
+                sb.append(",\"matrix\":[");
+                for (int row = 0; row < m.rows_count; row++) {
+                    if (row > 0) sb.append(',');
+                    sb.append('"');
+                    appendRow(sb, m, row);
+                    sb.append('"');
+                }
+                sb.append(']');
+            }
+            sb.append('}');
+        } else {
+            sb.append("result,").append(r.seed())
+                    .append(',').append(r.slimeRadius())
+                    .append(',').append(rank)
+                    .append(',').append(r.x())
+                    .append(',').append(r.z())
+                    .append(',').append(r.x() * 16)
+                    .append(',').append(r.z() * 16)
+                    .append(',').append(r.count())
+                    .append(',');
+            if (includeMatrix) {
+                BitMatrix m = r.matrix();
+                for (int row = 0; row < m.rows_count; row++) {
+                    if (row > 0) sb.append('/');
+                    appendRow(sb, m, row);
+                }
+            }
+        }
+        writeLine(sb.toString());
+    }
+
+    private static void appendRow(StringBuilder sb, BitMatrix m, int row) {
+        for (int col = 0; col < m.cols_count; col++) {
+            sb.append(m.get(row, col) ? '1' : '.');
+        }
+    }
+
+    private void writeLine(String line) {
+        if (error != null) return;
+        try {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (ownsStream) {
+                out.close();
+            } else {
+                out.flush();
+            }
+        } catch (IOException e) {
+            if (error == null) error = e;
+        }
+        if (error != null) throw error;
+    }
+}
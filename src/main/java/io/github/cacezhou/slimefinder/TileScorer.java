@@ -0,0 +1,331 @@
+package io.github.cacezhou.slimefinder;
+
+import java.util.Arrays;
+
+/**
+ * 分块前缀和计分引擎
+ * 一次生成一个 tile 及其外围 r 宽的边框内的全部史莱姆区块，按行求前缀和，
+ * 之后 tile 内每个中心点的得分 = 掩码（AfkMask）每一行的连续段在对应前缀和上的区间和
+ *
+ * 与 SlimeSlider 不同，tile 之间没有任何依赖，可以任意顺序、任意线程计算
+ * 一个实例内部的缓冲区会被复用，不是线程安全的，每个线程各持有一个
+ *
+ * 剪枝：把中心点按 G x G 分组，组内所有掩码的并集所含的史莱姆区块数是组内任一得分的上界，
+ * 上界低于当前第 N 名的组整组跳过。并集的每一行只需一次前缀和查询，代价约为逐点计分的 1/G
+ *
+ * 可以同时给出多个掩码（例如多个半径）：区块与前缀和按最大的掩码只生成一次，
+ * 每个掩码各自计分、各自剪枝，结果分别放在 getScores(k) 中
+ */
+public class TileScorer {
+    // 所有掩码中的最大半径，决定 tile 的边框
+    private final int radius;
+    private final int maxTileWidth;
+    private final int maxTileHeight;
+
+    // 每个掩码的计分计划与结果
+    private final MaskPlan[] plans;
+
+    // 剪枝分组边长
+    private final int groupSize;
+    // 单一门槛的 scoreTile 复用的门槛数组
+    private final int[] uniformMinScores;
+    // 按掩码累计，同一个中心点在两个掩码下都被跳过时计两次
+    private long prunedCentres;
+
+    // 指标：累计实时计算的区块数，以及生成区块并求前缀和、计分两个阶段的耗时
+    private long chunksHashed;
+    private long fillNanos;
+    private long scoreNanos;
+
+    private SlimeChunkOracle oracle;
+    private final long[] xTerms;
+    private final long[] zTerms;
+
+    // 可选的磁盘位图缓存，非空时直接从映射内存读取整行
+    private final SlimeBitmapCache cache;
+    private final long[] rowBits;
+
+    // 行前缀和，prefix[row * prefixStride + i] = 该行前 i 个区块中的史莱姆区块数
+    private final int[] prefix;
+    private final int prefixStride;
+
+    private int tileWidth;
+    private int tileHeight;
+
+    /**
+     * 单个掩码在最大边框内的计分计划，半径较小的掩码向内偏移 radius - 掩码半径，使所有掩码同心
+     */
+    private static final class MaskPlan {
+        // 掩码的每个水平连续段：所在行、起始列、结束列（含），已加上偏移
+        final int[] runRows;
+        final int[] runStarts;
+        final int[] runEnds;
+        // 组内掩码并集第 t 行的列范围 [groupLo[t], groupHi[t] + 组宽 - 1]（相对组左上角）
+        final int[] groupLo;
+        final int[] groupHi;
+        // 最近一次 scoreTile 的结果，scores[dz * tileWidth + dx]
+        final int[] scores;
+
+        MaskPlan(AfkMask mask, int offset, int unionRows, int groupSize, int maxTiles) {
+            int n = mask.runRows().length;
+            this.runRows = new int[n];
+            this.runStarts = new int[n];
+            this.runEnds = new int[n];
+            for (int k = 0; k < n; k++) {
+                runRows[k] = mask.runRows()[k] + offset;
+                runStarts[k] = mask.runStarts()[k] + offset;
+                runEnds[k] = mask.runEnds()[k] + offset;
+            }
+
+            this.groupLo = new int[unionRows];
+            this.groupHi = new int[unionRows];
+            Arrays.fill(groupLo, Integer.MAX_VALUE);
+            Arrays.fill(groupHi, Integer.MIN_VALUE);
+            for (int k = 0; k < n; k++) {
+                // 掩码第 y 行被组内第 dz 行的中心点平移到并集第 y + dz 行
+                for (int dz = 0; dz < groupSize; dz++) {
+                    int t = runRows[k] + dz;
+                    groupLo[t] = Math.min(groupLo[t], runStarts[k]);
+                    groupHi[t] = Math.max(groupHi[t], runEnds[k]);
+                }
+            }
+            this.scores = new int[maxTiles];
+        }
+    }
+
+    /**
+     * @param seed 地图种子
+     * @param circleRadius 玩家刷怪范围的半径
+     * @param maxTileWidth tile 的最大宽度（x 方向中心点个数）
+     * @param maxTileHeight tile 的最大高度（z 方向中心点个数）
+     */
+    public TileScorer(long seed, int circleRadius, int maxTileWidth, int maxTileHeight) {
+        this(seed, circleRadius, maxTileWidth, maxTileHeight, null);
+    }
+
+    /**
+     * @param seed 地图种子
+     * @param circleRadius 玩家刷怪范围的半径
+     * @param maxTileWidth tile 的最大宽度（x 方向中心点个数）
+     * @param maxTileHeight tile 的最大高度（z 方向中心点个数）
+     * @param cache 位图缓存，为 null 时实时计算区块；调用方需保证缓存覆盖 tile 及其边框
+     */
+    public TileScorer(long seed, int circleRadius, int maxTileWidth, int maxTileHeight, SlimeBitmapCache cache) {
+        this(seed, AfkMask.circle(circleRadius), maxTileWidth, maxTileHeight, cache);
+    }
+
+    /**
+     * @param seed 地图种子
+     * @param mask 计分掩码
+     * @param maxTileWidth tile 的最大宽度（x 方向中心点个数）
+     * @param maxTileHeight tile 的最大高度（z 方向中心点个数）
+     * @param cache 位图缓存，为 null 时实时计算区块；调用方需保证缓存覆盖 tile 及其边框
+     */
+    public TileScorer(long seed, AfkMask mask, int maxTileWidth, int maxTileHeight, SlimeBitmapCache cache) {
+        this(seed, new AfkMask[]{mask}, maxTileWidth, maxTileHeight, cache);
+    }
+
+    /**
+     * @param seed 地图种子
+     * @param masks 一个或多个计分掩码，共用同一批区块
+     * @param maxTileWidth tile 的最大宽度（x 方向中心点个数）
+     * @param maxTileHeight tile 的最大高度（z 方向中心点个数）
+     * @param cache 位图缓存，为 null 时实时计算区块；调用方需保证缓存覆盖 tile 及最大掩码的边框
+     */
+    public TileScorer(long seed, AfkMask[] masks, int maxTileWidth, int maxTileHeight, SlimeBitmapCache cache) {
+        int maskRadius = 0;
+        int minRadius = Integer.MAX_VALUE;
+        for (AfkMask mask : masks) {
+            maskRadius = Math.max(maskRadius, mask.radius());
+            minRadius = Math.min(minRadius, mask.radius());
+        }
+        this.radius = maskRadius;
+        this.maxTileWidth = maxTileWidth;
+        this.maxTileHeight = maxTileHeight;
+        int maskDim = 2 * maskRadius;
+
+        // 组边长取最小半径的一半：再大则并集面积膨胀过快，上界失去意义
+        this.groupSize = Math.max(1, minRadius / 2);
+        this.plans = new MaskPlan[masks.length];
+        this.uniformMinScores = new int[masks.length];
+        for (int k = 0; k < masks.length; k++) {
+            plans[k] = new MaskPlan(masks[k], maskRadius - masks[k].radius(), maskDim + groupSize - 1, groupSize,
+                    maxTileWidth * maxTileHeight);
+        }
+
+        // 掩码为 2r x 2r，覆盖中心点 [-r, r - 1] 的范围，所以 tile 两侧合计多出 2r - 1
+        int haloWidth = maxTileWidth + maskDim - 1;
+        int haloHeight = maxTileHeight + maskDim - 1;
+        this.oracle = new SlimeChunkOracle(seed);
+        this.xTerms = new long[haloWidth];
+        this.zTerms = new long[haloHeight];
+        this.prefixStride = haloWidth + 1;
+        this.prefix = new int[haloHeight * prefixStride];
+        this.cache = cache;
+        this.rowBits = new long[(haloWidth + 63) >>> 6];
+    }
+
+    /**
+     * 换用另一个种子，掩码与缓冲区原样复用；种子不变时什么也不做
+     * @throws IllegalStateException 实例带有位图缓存，缓存只对应构造时的种子
+     */
+    public void setSeed(long seed) {
+        if (oracle.seed == seed) return;
+        if (cache != null) throw new IllegalStateException("TileScorer with a bitmap cache is bound to its seed");
+        oracle = new SlimeChunkOracle(seed);
+    }
+
+    /**
+     * 计算中心点 x ∈ [x0, x0 + w)、z ∈ [z0, z0 + h) 的得分
+     * 得分与 SlimeSlider 在同一中心点的返回值相同
+     * @return 得分数组，下标为 (z - z0) * w + (x - x0)，在下一次调用前有效
+     */
+    public int[] scoreTile(int x0, int z0, int w, int h) {
+        return scoreTile(x0, z0, w, h, 0);
+    }
+
+    /**
+     * 计算中心点 x ∈ [x0, x0 + w)、z ∈ [z0, z0 + h) 的得分，跳过不可能达到 minScore 的中心点组
+     * @param minScore 调用方只关心得分 ≥ minScore 的点，≤ 0 时不剪枝
+     * @return 第一个掩码的得分数组，下标为 (z - z0) * w + (x - x0)，被剪枝的点记为 0，在下一次调用前有效
+     */
+    public int[] scoreTile(int x0, int z0, int w, int h, int minScore) {
+        Arrays.fill(uniformMinScores, minScore);
+        scoreTile(x0, z0, w, h, uniformMinScores);
+        return plans[0].scores;
+    }
+
+    /**
+     * 按每个掩码各自的门槛计算 tile 内所有中心点的得分，结果通过 getScores(k) 读取
+     * @param minScores 第 k 个掩码只关心得分 ≥ minScores[k] 的点，≤ 0 时该掩码不剪枝
+     */
+    public void scoreTile(int x0, int z0, int w, int h, int[] minScores) {
+        if (w <= 0 || h <= 0 || w > maxTileWidth || h > maxTileHeight) {
+            throw new IllegalArgumentException("Tile size out of range: " + w + "x" + h);
+        }
+        this.tileWidth = w;
+        this.tileHeight = h;
+
+        int haloWidth = w + 2 * radius - 1;
+        int haloHeight = h + 2 * radius - 1;
+        int left = x0 - radius;
+        int top = z0 - radius;
+        long t0 = System.nanoTime();
+
+        // 生成 tile 及边框的史莱姆区块并求行前缀和
+        if (cache != null) {
+            for (int row = 0; row < haloHeight; row++) {
+                cache.readRow(top + row, left, haloWidth, rowBits);
+                int base = row * prefixStride;
+                int sum = 0;
+                prefix[base] = 0;
+                for (int i = 0; i < haloWidth; i++) {
+                    sum += (int) ((rowBits[i >>> 6] >>> (i & 63)) & 1L);
+                    prefix[base + i + 1] = sum;
+                }
+            }
+        } else {
+            chunksHashed += (long) haloWidth * haloHeight;
+            oracle.fillXTerms(xTerms, left);
+            SlimeChunkOracle.fillZTerms(zTerms, top);
+            for (int row = 0; row < haloHeight; row++) {
+                long zTerm = zTerms[row];
+                int base = row * prefixStride;
+                int sum = 0;
+                prefix[base] = 0;
+                for (int i = 0; i < haloWidth; i++) {
+                    if (SlimeChunkOracle.isSlime(xTerms[i], zTerm)) sum++;
+                    prefix[base + i + 1] = sum;
+                }
+            }
+        }
+
+        long t1 = System.nanoTime();
+        fillNanos += t1 - t0;
+
+        for (int k = 0; k < plans.length; k++) {
+            scorePlan(plans[k], w, h, minScores[k]);
+        }
+        scoreNanos += System.nanoTime() - t1;
+    }
+
+    private void scorePlan(MaskPlan plan, int w, int h, int minScore) {
+        if (minScore <= 0) {
+            scoreGroup(plan, 0, 0, w, h, w);
+            return;
+        }
+
+        for (int gz = 0; gz < h; gz += groupSize) {
+            int gh = Math.min(groupSize, h - gz);
+            for (int gx = 0; gx < w; gx += groupSize) {
+                int gw = Math.min(groupSize, w - gx);
+                if (groupUpperBound(plan, gx, gz, gw, gh) < minScore) {
+                    for (int dz = gz; dz < gz + gh; dz++) {
+                        Arrays.fill(plan.scores, dz * w + gx, dz * w + gx + gw, 0);
+                    }
+                    prunedCentres += (long) gw * gh;
+                } else {
+                    scoreGroup(plan, gx, gz, gw, gh, w);
+                }
+            }
+        }
+    }
+
+    // 对 [gx, gx + gw) x [gz, gz + gh) 内每个中心点累加掩码各连续段的区间和
+    private void scoreGroup(MaskPlan plan, int gx, int gz, int gw, int gh, int w) {
+        int[] runRows = plan.runRows;
+        int[] runStarts = plan.runStarts;
+        int[] runEnds = plan.runEnds;
+        int[] scores = plan.scores;
+        int runCount = runRows.length;
+        for (int dz = gz; dz < gz + gh; dz++) {
+            int outBase = dz * w;
+            for (int dx = gx; dx < gx + gw; dx++) {
+                int score = 0;
+                for (int k = 0; k < runCount; k++) {
+                    int base = (dz + runRows[k]) * prefixStride + dx;
+                    score += prefix[base + runEnds[k] + 1] - prefix[base + runStarts[k]];
+                }
+                scores[outBase + dx] = score;
+            }
+        }
+    }
+
+    /**
+     * 组内掩码并集中的史莱姆区块数
+     * 不满 G x G 的边缘组沿用完整组的并集行范围，得到的仍是上界
+     */
+    private int groupUpperBound(MaskPlan plan, int gx, int gz, int gw, int gh) {
+        int[] groupLo = plan.groupLo;
+        int[] groupHi = plan.groupHi;
+        int bound = 0;
+        int unionRows = 2 * radius + gh - 1;
+        for (int t = 0; t < unionRows; t++) {
+            if (groupLo[t] > groupHi[t]) continue;
+            int base = (gz + t) * prefixStride + gx;
+            bound += prefix[base + groupHi[t] + gw] - prefix[base + groupLo[t]];
+        }
+        return bound;
+    }
+
+    // 第 k 个掩码在最近一次 scoreTile 中的得分，下标为 (z - z0) * w + (x - x0)
+    public int[] getScores(int k) { return plans[k].scores; }
+
+    public int getMaskCount() { return plans.length; }
+
+    // 累计被剪枝跳过的中心点数，多个掩码时按掩码分别计数
+    public long getPrunedCentres() { return prunedCentres; }
+
+    // 累计实时计算的区块数，使用位图缓存时读取的区块不计入
+    public long getChunksHashed() { return chunksHashed; }
+
+    // 累计生成区块并求行前缀和的耗时（纳秒）
+    public long getFillNanos() { return fillNanos; }
+
+    // 累计计分（含剪枝上界）的耗时（纳秒）
+    public long getScoreNanos() { return scoreNanos; }
+
+    public int getTileWidth() { return tileWidth; }
+
+    public int getTileHeight() { return tileHeight; }
+}
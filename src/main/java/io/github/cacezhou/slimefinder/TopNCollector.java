@@ -0,0 +1,126 @@
+package io.github.cacezhou.slimefinder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 定长的 topN 收集器，基于两个并行的基本类型数组实现二叉小顶堆，offer 不分配任何对象
+ *
+ * 堆顶是“最差”的点：得分低者更差，同分时 x 大者更差，再同时 z 大者更差，
+ * 与 AsyncSlimeFinder 中 SimplePoint 的排序一致，结果与点的到达顺序无关
+ *
+ * 坐标打包为一个 long：高 32 位为 x，低 32 位为翻转符号位后的 z，
+ * 这样有符号比较打包值就等价于先比 x 再比 z
+ */
+public final class TopNCollector {
+    private final int capacity;
+    private final int[] scores;
+    private final long[] coords;
+    private int size;
+
+    public TopNCollector(int capacity) {
+        this.capacity = capacity;
+        this.scores = new int[capacity];
+        this.coords = new long[capacity];
+    }
+
+    static long pack(int x, int z) {
+        return ((long) x << 32) | ((z ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    static int unpackX(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    static int unpackZ(long packed) {
+        return (int) packed ^ Integer.MIN_VALUE;
+    }
+
+    public int size() { return size; }
+
+    public int capacity() { return capacity; }
+
+    public boolean isFull() { return size >= capacity; }
+
+    /**
+     * 堆顶（当前最差）的得分，仅在 size() > 0 时有意义
+     */
+    public int minScore() { return scores[0]; }
+
+    /**
+     * 收集器未满时直接加入，否则仅当优于堆顶时替换堆顶
+     * @return 是否被收入
+     */
+    public boolean offer(int x, int z, int score) {
+        if (capacity == 0) return false;
+        long packed = pack(x, z);
+        if (size < capacity) {
+            siftUp(size++, score, packed);
+            return true;
+        }
+        if (!worse(scores[0], coords[0], score, packed)) return false;
+        siftDown(0, score, packed);
+        return true;
+    }
+
+    public void addAll(TopNCollector other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(unpackX(other.coords[i]), unpackZ(other.coords[i]), other.scores[i]);
+        }
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // 堆内第 i 个元素（无序）
+    public int x(int i) { return unpackX(coords[i]); }
+
+    public int z(int i) { return unpackZ(coords[i]); }
+
+    public int score(int i) { return scores[i]; }
+
+    /**
+     * 转为 SimplePoint 列表（无序），只在合并结束或保存断点时调用
+     */
+    List<AsyncSlimeFinder.SimplePoint> toList() {
+        List<AsyncSlimeFinder.SimplePoint> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new AsyncSlimeFinder.SimplePoint(x(i), z(i), scores[i]));
+        }
+        return list;
+    }
+
+    // (scoreA, coordA) 是否比 (scoreB, coordB) 更差
+    private static boolean worse(int scoreA, long coordA, int scoreB, long coordB) {
+        if (scoreA != scoreB) return scoreA < scoreB;
+        return coordA > coordB;
+    }
+
+    private void siftUp(int idx, int score, long packed) {
+        while (idx > 0) {
+            int parent = (idx - 1) >>> 1;
+            if (!worse(score, packed, scores[parent], coords[parent])) break;
+            scores[idx] = scores[parent];
+            coords[idx] = coords[parent];
+            idx = parent;
+        }
+        scores[idx] = score;
+        coords[idx] = packed;
+    }
+
+    private void siftDown(int idx, int score, long packed) {
+        int half = size >>> 1;
+        while (idx < half) {
+            int child = 2 * idx + 1;
+            int right = child + 1;
+            if (right < size && worse(scores[right], coords[right], scores[child], coords[child])) child = right;
+            if (!worse(scores[child], coords[child], score, packed)) break;
+            scores[idx] = scores[child];
+            coords[idx] = coords[child];
+            idx = child;
+        }
+        scores[idx] = score;
+        coords[idx] = packed;
+    }
+}
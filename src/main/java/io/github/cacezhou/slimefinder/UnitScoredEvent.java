@@ -0,0 +1,57 @@
+package io.github.cacezhou.slimefinder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * 一个工作单元计算完毕，持续时间即该单元的耗时
+ * 阶段耗时在 SLIDER 引擎下为抽样估算值
+ */
+@Name("io.github.cacezhou.slimefinder.UnitScored")
+@Label("Unit Scored")
+@Category({"SlimeFinder"})
+@Description("One search unit scored by a worker thread")
+final class UnitScoredEvent extends Event {
+    @Label("Engine")
+    String engine;
+
+    @Label("Seed")
+    long seed;
+
+    @Label("Unit X")
+    int x0;
+
+    @Label("Unit Z")
+    int z0;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("Chunks Hashed")
+    long chunksHashed;
+
+    @Label("Centres Scored")
+    long centresScored;
+
+    @Label("Heap Admissions")
+    long admissions;
+
+    @Label("Fill Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long fillNanos;
+
+    @Label("Shift Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long shiftNanos;
+
+    @Label("Count Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long countNanos;
+}
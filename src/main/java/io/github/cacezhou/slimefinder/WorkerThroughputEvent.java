@@ -0,0 +1,52 @@
+package io.github.cacezhou.slimefinder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.Timespan;
+
+/**
+ * 搜索进行中按周期为每个工作线程提交一次，计数为自搜索开始的累计值，速率为平均值
+ */
+@Name("io.github.cacezhou.slimefinder.WorkerThroughput")
+@Label("Worker Throughput")
+@Category({"SlimeFinder"})
+@Description("Cumulative counters and average rates of one search worker thread")
+@Period("1 s")
+final class WorkerThroughputEvent extends Event {
+    @Label("Thread")
+    String thread;
+
+    @Label("Units")
+    long units;
+
+    @Label("Chunks Hashed")
+    long chunksHashed;
+
+    @Label("Centres Scored")
+    long centresScored;
+
+    @Label("Heap Admissions")
+    long admissions;
+
+    @Label("Chunks Hashed Per Second")
+    double chunksHashedPerSecond;
+
+    @Label("Centres Scored Per Second")
+    double centresScoredPerSecond;
+
+    @Label("Fill Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long fillNanos;
+
+    @Label("Shift Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long shiftNanos;
+
+    @Label("Count Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long countNanos;
+}
@@ -0,0 +1,265 @@
+package io.github.cacezhou.slimefinder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 差分校验：BitMatrix 的行环与列环位移和逐个复制元素的 boolean[][] 参照实现比对
+ */
+class BitMatrixTest {
+    private static final int ROWS = 37;
+    // 150 列有空闲列，128 列的列环恰好占满物理列，37 列不满一个 long
+    private static final int[] COLS = {150, 128, 37};
+
+    /**
+     * 朴素实现：每次位移都复制整个数组
+     */
+    private static final class Reference {
+        boolean[][] bits;
+
+        Reference(int rows, int cols) {
+            bits = new boolean[rows][cols];
+        }
+
+        // 与 BitMatrix.shiftVertical 相同：正数时上面的行移出，新的逻辑第 r 行是原来的第 r + delta 行
+        void shiftVertical(int delta) {
+            boolean[][] next = new boolean[bits.length][bits[0].length];
+            for (int r = 0; r < bits.length; r++) {
+                int src = r + delta;
+                if (src >= 0 && src < bits.length) next[r] = bits[src].clone();
+            }
+            bits = next;
+        }
+
+        // 与 BitMatrix.shiftHorizontal 相同：正数时右边的列移出，新的逻辑第 c 列是原来的第 c - delta 列
+        void shiftHorizontal(int delta) {
+            boolean[][] next = new boolean[bits.length][bits[0].length];
+            for (int r = 0; r < bits.length; r++) {
+                for (int c = 0; c < bits[0].length; c++) {
+                    int src = c - delta;
+                    if (src >= 0 && src < bits[0].length) next[r][c] = bits[r][src];
+                }
+            }
+            bits = next;
+        }
+
+        long wordAt(int row, int col) {
+            long word = 0;
+            for (int i = 0; i < 64 && col + i < bits[0].length; i++) {
+                if (bits[row][col + i]) word |= 1L << i;
+            }
+            return word;
+        }
+
+        int countIntersectionAt(int startRow, int startCol, BitMatrix other) {
+            int hits = 0;
+            for (int r = 0; r < other.rows_count && startRow + r < bits.length; r++) {
+                for (int c = 0; c < other.cols_count && startCol + c < bits[0].length; c++) {
+                    if (other.get(r, c) && bits[startRow + r][startCol + c]) hits++;
+                }
+            }
+            return hits;
+        }
+    }
+
+    private static void fillRandom(Random random, BitMatrix matrix, Reference reference) {
+        for (int r = 0; r < matrix.rows_count; r++) {
+            for (int c = 0; c < matrix.cols_count; c++) {
+                boolean bit = random.nextBoolean();
+                matrix.set(r, c, bit);
+                reference.bits[r][c] = bit;
+            }
+        }
+    }
+
+    // 只写入部分位置，让移入的空列与旧数据混在一起
+    private static void scatterRandom(Random random, BitMatrix matrix, Reference reference) {
+        for (int i = 0; i < 200; i++) {
+            int r = random.nextInt(matrix.rows_count);
+            int c = random.nextInt(matrix.cols_count);
+            matrix.set(r, c, true);
+            reference.bits[r][c] = true;
+        }
+    }
+
+    private static void assertSameContents(Reference expected, BitMatrix actual, String context) {
+        int ones = 0;
+        for (int r = 0; r < actual.rows_count; r++) {
+            for (int c = 0; c < actual.cols_count; c++) {
+                if (expected.bits[r][c]) ones++;
+                assertEquals(expected.bits[r][c], actual.get(r, c), context + " bit at " + r + "," + c);
+            }
+        }
+        assertEquals(ones, actual.countOnes(), context + " countOnes");
+    }
+
+    private static int[] deltas(int cols) {
+        return new int[]{1, -1, 63, -63, 64, -64, 65, -65, cols - 1, -(cols - 1), cols, -cols, cols + 70, -(cols + 70),
+                17, -30, 100, -100};
+    }
+
+    @Test
+    void shiftHorizontalMatchesCopyingReference() {
+        Random random = new Random(1);
+        for (int cols : COLS) {
+            BitMatrix matrix = BitMatrix.create(ROWS, cols);
+            Reference reference = new Reference(ROWS, cols);
+            fillRandom(random, matrix, reference);
+            // 不重新填充，首列指针在多次位移后绕过物理行尾
+            for (int delta : deltas(cols)) {
+                matrix.shiftHorizontal(delta);
+                reference.shiftHorizontal(delta);
+                assertSameContents(reference, matrix, "cols " + cols + " shift " + delta);
+                scatterRandom(random, matrix, reference);
+            }
+        }
+    }
+
+    @Test
+    void shiftVerticalMatchesCopyingReference() {
+        Random random = new Random(2);
+        for (int cols : COLS) {
+            BitMatrix matrix = BitMatrix.create(ROWS, cols);
+            Reference reference = new Reference(ROWS, cols);
+            fillRandom(random, matrix, reference);
+            for (int delta : new int[]{1, -1, 5, -7, ROWS - 1, -(ROWS - 1), ROWS, -ROWS, ROWS + 3, 20, -20}) {
+                matrix.shiftVertical(delta);
+                reference.shiftVertical(delta);
+                assertSameContents(reference, matrix, "cols " + cols + " shift " + delta);
+                scatterRandom(random, matrix, reference);
+                // 行列同时位移，两个环都不在起点
+                matrix.shiftHorizontal(delta * 3);
+                reference.shiftHorizontal(delta * 3);
+                assertSameContents(reference, matrix, "cols " + cols + " after shift " + delta + " horizontal");
+            }
+        }
+    }
+
+    // 每次位移后都检查所有起点：跨字、跨物理行尾读取的字都要正确
+    @Test
+    void readsMatchReferenceAfterWraparound() {
+        Random random = new Random(3);
+        BitMatrix mask = BitMatrix.createCircle(8);
+        for (int cols : COLS) {
+            BitMatrix matrix = BitMatrix.create(ROWS, cols);
+            Reference reference = new Reference(ROWS, cols);
+            fillRandom(random, matrix, reference);
+            for (int delta : new int[]{-5, 70, -66, 13, 64, -100}) {
+                matrix.shiftHorizontal(delta);
+                reference.shiftHorizontal(delta);
+                matrix.shiftVertical(delta % ROWS);
+                reference.shiftVertical(delta % ROWS);
+                scatterRandom(random, matrix, reference);
+                for (int r = 0; r < ROWS; r++) {
+                    for (int c = 0; c < cols; c++) {
+                        assertEquals(reference.wordAt(r, c), matrix.wordAt(r, c),
+                                "cols " + cols + " shift " + delta + " wordAt " + r + "," + c);
+                    }
+                }
+                for (int r = 0; r + mask.rows_count <= ROWS; r += 2) {
+                    for (int c = 0; c < cols; c += 3) {
+                        assertEquals(reference.countIntersectionAt(r, c, mask), matrix.countIntersectionAt(r, c, mask),
+                                "cols " + cols + " shift " + delta + " countIntersectionAt " + r + "," + c);
+                    }
+                }
+                int[][] windows = {{0, 0, 10, 70}, {4, 13, 20, 64}, {30, cols - 20, 7, 80}, {1, 63 % cols, 5, 1}};
+                for (int[] w : windows) {
+                    BitMatrix dest = BitMatrix.create(w[2], w[3]);
+                    matrix.extractSubMatrix(w[0], w[1], dest);
+                    for (int r = 0; r < w[2]; r++) {
+                        for (int c = 0; c < w[3]; c++) {
+                            boolean expected = w[0] + r < ROWS && w[1] + c < cols && reference.bits[w[0] + r][w[1] + c];
+                            assertEquals(expected, dest.get(r, c),
+                                    "cols " + cols + " shift " + delta + " window " + w[0] + "," + w[1]
+                                            + " bit " + r + "," + c);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void rowAndColumnWritesAfterWraparound() {
+        Random random = new Random(4);
+        for (int cols : COLS) {
+            BitMatrix matrix = BitMatrix.create(ROWS, cols);
+            Reference reference = new Reference(ROWS, cols);
+            fillRandom(random, matrix, reference);
+            matrix.shiftHorizontal(-70 % cols);
+            reference.shiftHorizontal(-70 % cols);
+            matrix.shiftVertical(11);
+            reference.shiftVertical(11);
+
+            long[] rowBits = new long[(cols + 63) >>> 6];
+            for (int r = 0; r < ROWS; r += 4) {
+                for (int k = 0; k < rowBits.length; k++) rowBits[k] = random.nextLong();
+                matrix.setRowWords(r, rowBits, 0);
+                for (int c = 0; c < cols; c++) reference.bits[r][c] = ((rowBits[c >>> 6] >>> (c & 63)) & 1L) != 0;
+            }
+            assertSameContents(reference, matrix, "cols " + cols + " setRowWords");
+
+            long[] colBits = new long[(ROWS + 63) >>> 6];
+            for (int c = 0; c < cols; c += 5) {
+                for (int k = 0; k < colBits.length; k++) colBits[k] = random.nextLong();
+                matrix.setColumnWords(c, colBits, 0);
+                for (int r = 0; r < ROWS; r++) reference.bits[r][c] = ((colBits[r >>> 6] >>> (r & 63)) & 1L) != 0;
+            }
+            assertSameContents(reference, matrix, "cols " + cols + " setColumnWords");
+        }
+    }
+
+    // 两个矩阵的列环位置不同，逐字运算前需要对齐
+    @Test
+    void booleanOpsAfterWraparound() {
+        Random random = new Random(5);
+        for (int cols : COLS) {
+            BitMatrix a = BitMatrix.create(ROWS, cols);
+            BitMatrix b = BitMatrix.create(ROWS, cols);
+            Reference refA = new Reference(ROWS, cols);
+            Reference refB = new Reference(ROWS, cols);
+            fillRandom(random, a, refA);
+            fillRandom(random, b, refB);
+            a.shiftHorizontal(65 % cols);
+            refA.shiftHorizontal(65 % cols);
+            b.shiftHorizontal(-3);
+            refB.shiftHorizontal(-3);
+            b.shiftVertical(-4);
+            refB.shiftVertical(-4);
+            scatterRandom(random, a, refA);
+
+            a.intersect(b);
+            for (int r = 0; r < ROWS; r++) {
+                for (int c = 0; c < cols; c++) refA.bits[r][c] &= refB.bits[r][c];
+            }
+            assertSameContents(refA, a, "cols " + cols + " intersect");
+
+            b.shiftHorizontal(40);
+            refB.shiftHorizontal(40);
+            a.union(b);
+            for (int r = 0; r < ROWS; r++) {
+                for (int c = 0; c < cols; c++) refA.bits[r][c] |= refB.bits[r][c];
+            }
+            assertSameContents(refA, a, "cols " + cols + " union");
+
+            a.shiftHorizontal(-1);
+            refA.shiftHorizontal(-1);
+            a.xor(b);
+            for (int r = 0; r < ROWS; r++) {
+                for (int c = 0; c < cols; c++) refA.bits[r][c] ^= refB.bits[r][c];
+            }
+            assertSameContents(refA, a, "cols " + cols + " xor");
+
+            a.shiftHorizontal(7);
+            refA.shiftHorizontal(7);
+            a.invert();
+            for (int r = 0; r < ROWS; r++) {
+                for (int c = 0; c < cols; c++) refA.bits[r][c] = !refA.bits[r][c];
+            }
+            assertSameContents(refA, a, "cols " + cols + " invert");
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package io.github.cacezhou.slimefinder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * BITSLICE 引擎的位切片计数与逐点 countIntersectionAt、暴力计分以及 SLIDER 引擎的 topN 比对
+ */
+class BitSliceScorerTest {
+    private static final long[] SEEDS = {0L, 12345L, -4172144997902289642L};
+    // 边长 2 * 100 + 1 = 201，最右一列与最下一行的 tile 不满 64 列、也不是正方形
+    private static final int SEARCH_RADIUS = 100;
+    private static final int[] TOP_N = {1, 10, 137, 1000};
+    private static final int ROWS = 40;
+    private static final int COLS = 300;
+
+    private static BitMatrix randomMatrix(Random random) {
+        BitMatrix m = BitMatrix.create(ROWS, COLS);
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLS; c++) {
+                m.set(r, c, random.nextBoolean());
+            }
+        }
+        return m;
+    }
+
+    // 超出右边界的通道按 0 计，countIntersectionAt 本身会裁剪边界
+    private static int lane(BitMatrix m, int startRow, int startCol, BitMatrix mask) {
+        return startCol < m.cols_count ? m.countIntersectionAt(startRow, startCol, mask) : 0;
+    }
+
+    @Test
+    void countIntersectionsAtMatchesCountIntersectionAt() {
+        Random random = new Random(1);
+        BitMatrix[] masks = {BitMatrix.createCircle(1), BitMatrix.createCircle(8), AfkMask.annulus(5, 12).bits()};
+        for (BitMatrix mask : masks) {
+            BitMatrix m = randomMatrix(random);
+            long[] planes = new long[BitMatrix.slicedPlanesFor(mask.countOnes())];
+            // 起始列覆盖字边界两侧，以及最后 64 条通道越过右边界的情况
+            for (int startCol : new int[]{0, 1, 63, 64, 100, COLS - 64, COLS - 10}) {
+                for (int startRow = 0; startRow + mask.rows_count <= ROWS; startRow += 5) {
+                    m.countIntersectionsAt(startRow, startCol, mask, planes);
+                    for (int i = 0; i < 64; i++) {
+                        assertEquals(lane(m, startRow, startCol + i, mask), BitMatrix.slicedLane(planes, i),
+                                "mask " + mask.rows_count + " at " + startRow + "," + (startCol + i));
+                    }
+                }
+            }
+        }
+    }
+
+    // 每次下移一行先减去离开的一行、再加上进入的一行，结果与整窗重新计数相同
+    @Test
+    void addAndSubtractSlicedAtTrackSlidingWindow() {
+        Random random = new Random(2);
+        int height = 9;
+        int width = 13;
+        BitMatrix mask = BitMatrix.create(height, width);
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) mask.set(r, c, true);
+        }
+        int[] topRows = new int[width];
+        int[] bottomRows = new int[width];
+        int[] cols = new int[width];
+        for (int c = 0; c < width; c++) {
+            topRows[c] = 0;
+            bottomRows[c] = height - 1;
+            cols[c] = c;
+        }
+        for (int startCol : new int[]{0, 37, COLS - 64}) {
+            BitMatrix m = randomMatrix(random);
+            long[] planes = new long[BitMatrix.slicedPlanesFor(height * width)];
+            m.countIntersectionsAt(0, startCol, mask, planes);
+            for (int row = 1; row + height <= ROWS; row++) {
+                m.subtractSlicedAt(row - 1, startCol, topRows, cols, planes);
+                m.addSlicedAt(row, startCol, bottomRows, cols, planes);
+                for (int i = 0; i < 64; i++) {
+                    assertEquals(lane(m, row, startCol + i, mask), BitMatrix.slicedLane(planes, i),
+                            "window at " + row + "," + (startCol + i));
+                }
+            }
+        }
+    }
+
+    @Test
+    void slicedAtLeastMatchesLaneValues() {
+        Random random = new Random(3);
+        for (int bits = 1; bits <= 10; bits++) {
+            long[] planes = new long[bits];
+            for (int trial = 0; trial < 20; trial++) {
+                for (int j = 0; j < bits; j++) planes[j] = random.nextLong();
+                for (int threshold = -1; threshold <= (1 << bits) + 1; threshold++) {
+                    long expected = 0;
+                    for (int i = 0; i < 64; i++) {
+                        if (BitMatrix.slicedLane(planes, i) >= threshold) expected |= 1L << i;
+                    }
+                    assertEquals(expected, BitMatrix.slicedAtLeast(planes, threshold),
+                            "planes " + bits + " threshold " + threshold);
+                }
+            }
+        }
+    }
+
+    @Test
+    void recordedScoresMatchReference() {
+        AfkMask[] masks = {AfkMask.circle(8), AfkMask.circle(3), AfkMask.annulus(24, 128), AfkMask.square(5)};
+        // 宽度覆盖整条带、不满 64 列的末条带以及单列
+        int[][] tiles = {{-40, 17, 128, 128}, {300, -90, 73, 128}, {-5, -5, 128, 31}, {7, 7, 1, 1}, {0, 0, 65, 64}};
+        for (long seed : SEEDS) {
+            SlimeChunkOracle oracle = new SlimeChunkOracle(seed);
+            BitSliceScorer scorer = new BitSliceScorer(seed, masks, 128, 128, null);
+            scorer.setRecordScores(true);
+            for (int[] t : tiles) {
+                scorer.scoreTile(t[0], t[1], t[2], t[3], new int[masks.length], (k, x, z, score) -> 0);
+                for (int k = 0; k < masks.length; k++) {
+                    int[] scores = scorer.getScores(k);
+                    for (int dz = 0; dz < t[3]; dz++) {
+                        for (int dx = 0; dx < t[2]; dx++) {
+                            int x = t[0] + dx;
+                            int z = t[1] + dz;
+                            int mask = k;
+                            assertEquals(ReferenceScores.score(oracle, masks[k], x, z), scores[dz * t[2] + dx],
+                                    () -> "seed " + seed + " mask " + masks[mask] + " at " + x + "," + z);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void topNMatchesSliderAndReference() {
+        for (long seed : SEEDS) {
+            for (int slimeRadius : new int[]{4, 8}) {
+                List<AsyncSlimeFinder.SimplePoint> reference = ReferenceScores.topN(seed, AfkMask.circle(slimeRadius),
+                        30, -20, SEARCH_RADIUS, TOP_N[TOP_N.length - 1]);
+                for (int topN : TOP_N) {
+                    List<AsyncSlimeFinder.SimplePoint> expected = reference.subList(0, topN);
+                    assertEquals(expected, search(seed, slimeRadius, topN, AsyncSlimeFinder.Engine.SLIDER, 0),
+                            "slider seed " + seed + " r " + slimeRadius + " topN " + topN);
+                    // 默认单元边长，以及不是 64 倍数的 100
+                    for (int unitSize : new int[]{0, 100}) {
+                        assertEquals(expected, search(seed, slimeRadius, topN, AsyncSlimeFinder.Engine.BITSLICE,
+                                unitSize), "bitslice seed " + seed + " r " + slimeRadius + " topN " + topN
+                                + " unitSize " + unitSize);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void multiRadiusTopNMatchesSlider() {
+        int[] radii = {8, 3, 6};
+        for (long seed : SEEDS) {
+            Map<Integer, List<SearchResult>> slider = searchMulti(seed, radii, AsyncSlimeFinder.Engine.SLIDER);
+            Map<Integer, List<SearchResult>> bitSlice = searchMulti(seed, radii, AsyncSlimeFinder.Engine.BITSLICE);
+            for (int r : radii) {
+                List<AsyncSlimeFinder.SimplePoint> expected = ReferenceScores.topN(seed, AfkMask.circle(r),
+                        30, -20, SEARCH_RADIUS, 137);
+                assertEquals(expected, ReferenceScores.points(slider.get(r)), "slider seed " + seed + " r " + r);
+                assertEquals(expected, ReferenceScores.points(bitSlice.get(r)), "bitslice seed " + seed + " r " + r);
+            }
+        }
+    }
+
+    private static List<AsyncSlimeFinder.SimplePoint> search(long seed, int slimeRadius, int topN,
+                                                             AsyncSlimeFinder.Engine engine, int unitSize) {
+        SearchOptions options = new SearchOptions().engine(engine).unitSize(unitSize).quiet(true);
+        return ReferenceScores.points(AsyncSlimeFinder.findTopSlimeClusters(seed, 30, -20, SEARCH_RADIUS,
+                slimeRadius, 3, topN, options));
+    }
+
+    private static Map<Integer, List<SearchResult>> searchMulti(long seed, int[] radii, AsyncSlimeFinder.Engine engine) {
+        SearchOptions options = new SearchOptions().engine(engine).quiet(true);
+        return AsyncSlimeFinder.findTopSlimeClustersMulti(seed, 30, -20, SEARCH_RADIUS, radii, 3, 137, options);
+    }
+}
@@ -0,0 +1,183 @@
+package io.github.cacezhou.slimefinder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 差分校验：OffHeapBitMatrix 与内容相同的 BitMatrix 逐项比对
+ */
+class OffHeapBitMatrixTest {
+    // 列数不是 64 的倍数，覆盖行尾不满一个 long 的情况
+    private static final int ROWS = 37;
+    private static final int COLS = 150;
+
+    // 两个矩阵写入相同的随机内容
+    private static void fillRandom(Random random, OffHeapBitMatrix offHeap, BitMatrix heap) {
+        for (int r = 0; r < offHeap.rows_count; r++) {
+            for (int c = 0; c < offHeap.cols_count; c++) {
+                boolean bit = random.nextBoolean();
+                offHeap.set(r, c, bit);
+                heap.set(r, c, bit);
+            }
+        }
+    }
+
+    private static void assertSameContents(BitMatrix expected, OffHeapBitMatrix actual) {
+        assertEquals(expected.countOnes(), actual.countOnes(), "countOnes");
+        for (int r = 0; r < expected.rows_count; r++) {
+            for (int c = 0; c < expected.cols_count; c++) {
+                assertEquals(expected.get(r, c), actual.get(r, c), "bit at " + r + "," + c);
+            }
+        }
+    }
+
+    @Test
+    void wordAtMatchesBitMatrix() {
+        Random random = new Random(1);
+        OffHeapBitMatrix offHeap = OffHeapBitMatrix.allocate(ROWS, COLS);
+        BitMatrix heap = BitMatrix.create(ROWS, COLS);
+        fillRandom(random, offHeap, heap);
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLS + 64; c++) {
+                assertEquals(heap.wordAt(r, c), offHeap.wordAt(r, c), "wordAt " + r + "," + c);
+            }
+        }
+    }
+
+    @Test
+    void shiftVerticalMatchesBitMatrix() {
+        Random random = new Random(2);
+        OffHeapBitMatrix offHeap = OffHeapBitMatrix.allocate(ROWS, COLS);
+        BitMatrix heap = BitMatrix.create(ROWS, COLS);
+        int[] deltas = {3, -7, 1, ROWS - 1, -(ROWS - 2), 0, 5, ROWS + 4, -1};
+        for (int delta : deltas) {
+            fillRandom(random, offHeap, heap);
+            offHeap.shiftVertical(delta);
+            heap.shiftVertical(delta);
+            assertSameContents(heap, offHeap);
+        }
+    }
+
+    @Test
+    void countIntersectionAtMatchesBitMatrix() {
+        Random random = new Random(3);
+        OffHeapBitMatrix offHeap = OffHeapBitMatrix.allocate(ROWS, COLS);
+        BitMatrix heap = BitMatrix.create(ROWS, COLS);
+        fillRandom(random, offHeap, heap);
+        offHeap.shiftVertical(11);
+        heap.shiftVertical(11);
+        BitMatrix mask = BitMatrix.createCircle(8);
+        for (int r = 0; r < ROWS; r += 3) {
+            for (int c = 0; c < COLS; c += 7) {
+                assertEquals(heap.countIntersectionAt(r, c, mask), offHeap.countIntersectionAt(r, c, mask),
+                        "countIntersectionAt " + r + "," + c);
+            }
+        }
+    }
+
+    @Test
+    void extractSubMatrixMatchesBitMatrix() {
+        Random random = new Random(4);
+        OffHeapBitMatrix offHeap = OffHeapBitMatrix.allocate(ROWS, COLS);
+        BitMatrix heap = BitMatrix.create(ROWS, COLS);
+        fillRandom(random, offHeap, heap);
+        offHeap.shiftVertical(-5);
+        heap.shiftVertical(-5);
+        int[][] windows = {{0, 0, 10, 70}, {4, 13, 20, 64}, {30, 100, 20, 80}, {1, 63, 5, 1}};
+        for (int[] w : windows) {
+            BitMatrix expected = BitMatrix.create(w[2], w[3]);
+            BitMatrix actual = BitMatrix.create(w[2], w[3]);
+            heap.extractSubMatrix(w[0], w[1], expected);
+            offHeap.extractSubMatrix(w[0], w[1], actual);
+            for (int r = 0; r < w[2]; r++) {
+                for (int c = 0; c < w[3]; c++) {
+                    assertEquals(expected.get(r, c), actual.get(r, c),
+                            "window " + w[0] + "," + w[1] + " bit " + r + "," + c);
+                }
+            }
+        }
+    }
+
+    @Test
+    void booleanOpsMatchBitMatrix() {
+        Random random = new Random(5);
+        OffHeapBitMatrix offA = OffHeapBitMatrix.allocate(ROWS, COLS);
+        OffHeapBitMatrix offB = OffHeapBitMatrix.allocate(ROWS, COLS);
+        BitMatrix heapA = BitMatrix.create(ROWS, COLS);
+        BitMatrix heapB = BitMatrix.create(ROWS, COLS);
+
+        fillRandom(random, offA, heapA);
+        fillRandom(random, offB, heapB);
+        offA.intersect(offB);
+        heapA.intersect(heapB);
+        assertSameContents(heapA, offA);
+
+        fillRandom(random, offA, heapA);
+        offA.union(offB);
+        heapA.union(heapB);
+        assertSameContents(heapA, offA);
+
+        fillRandom(random, offA, heapA);
+        offA.xor(offB);
+        heapA.xor(heapB);
+        assertSameContents(heapA, offA);
+
+        offA.shiftVertical(9);
+        heapA.shiftVertical(9);
+        offA.invert();
+        heapA.invert();
+        assertSameContents(heapA, offA);
+    }
+
+    // 没有写入时的并发读取互不干扰
+    @Test
+    void concurrentReadsAgree() throws Exception {
+        Random random = new Random(7);
+        OffHeapBitMatrix offHeap = OffHeapBitMatrix.allocate(ROWS * 8, COLS * 4);
+        BitMatrix heap = BitMatrix.create(ROWS * 8, COLS * 4);
+        fillRandom(random, offHeap, heap);
+        BitMatrix mask = BitMatrix.createCircle(8);
+        long ones = heap.countOnes();
+        int hits = heap.countIntersectionAt(10, 20, mask);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        assertEquals(ones, offHeap.countOnes(), "countOnes");
+                        assertEquals(hits, offHeap.countIntersectionAt(10, 20, mask), "countIntersectionAt");
+                    }
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void mapRoundTripsThroughFile(@TempDir Path dir) throws IOException {
+        Random random = new Random(6);
+        Path file = dir.resolve("matrix.bits");
+        BitMatrix heap = BitMatrix.create(ROWS, COLS);
+        OffHeapBitMatrix written = OffHeapBitMatrix.map(file, ROWS, COLS);
+        fillRandom(random, written, heap);
+        written.force();
+
+        OffHeapBitMatrix reopened = OffHeapBitMatrix.map(file, ROWS, COLS);
+        assertSameContents(heap, reopened);
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.cacezhou.slimefinder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 逐区块暴力计分，作为各计分引擎的参照
+ * 掩码第 r 行第 c 列对应区块 (x - radius + c, z - radius + r)，与 SlimeSlider 的窗口布局相同
+ */
+final class ReferenceScores {
+    private ReferenceScores() {}
+
+    static int score(SlimeChunkOracle oracle, AfkMask mask, int x, int z) {
+        BitMatrix bits = mask.bits();
+        int r = mask.radius();
+        int score = 0;
+        for (int row = 0; row < bits.rows_count; row++) {
+            for (int col = 0; col < bits.cols_count; col++) {
+                if (bits.get(row, col) && oracle.isSlimeChunk(x - r + col, z - r + row)) score++;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * 与 AsyncSlimeFinder.findTopSlimeClusters 覆盖相同的中心点（见 SearchGrid），按相同的同分规则排序
+     * @return 由好到差的前 topN 个点
+     */
+    static List<AsyncSlimeFinder.SimplePoint> topN(long seed, AfkMask mask, int centerX, int centerZ,
+                                                   int searchRadius, int topN) {
+        SlimeChunkOracle oracle = new SlimeChunkOracle(seed);
+        SearchGrid grid = SearchGrid.of(centerX, centerZ, searchRadius, 1);
+        List<AsyncSlimeFinder.SimplePoint> all = new ArrayList<>();
+        for (int z = grid.firstZ; z < grid.firstZ + grid.sideLength; z++) {
+            for (int x = grid.startX; x < grid.startX + grid.sideLength; x++) {
+                all.add(new AsyncSlimeFinder.SimplePoint(x, z, score(oracle, mask, x, z)));
+            }
+        }
+        all.sort(AsyncSlimeFinder.WORST_FIRST.reversed());
+        return new ArrayList<>(all.subList(0, Math.min(topN, all.size())));
+    }
+
+    // 把结果转成 SimplePoint，便于与 topN 的返回值直接比较
+    static List<AsyncSlimeFinder.SimplePoint> points(List<SearchResult> results) {
+        List<AsyncSlimeFinder.SimplePoint> points = new ArrayList<>(results.size());
+        for (SearchResult r : results) points.add(new AsyncSlimeFinder.SimplePoint(r.x(), r.z(), r.count()));
+        return points;
+    }
+}
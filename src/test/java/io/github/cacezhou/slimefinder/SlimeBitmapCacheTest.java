@@ -0,0 +1,52 @@
+package io.github.cacezhou.slimefinder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 缓存读出的区块与 SlimeChunkOracle 实时计算的结果一致
+ */
+class SlimeBitmapCacheTest {
+    private static final long SEED = 12345L;
+    private static final int ORIGIN_X = -70;
+    private static final int ORIGIN_Z = 40;
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 90;
+
+    @Test
+    void matchesOracle(@TempDir Path dir) throws IOException {
+        SlimeBitmapCache cache = SlimeBitmapCache.openOrBuild(dir, SEED, ORIGIN_X, ORIGIN_Z, WIDTH, HEIGHT, 2);
+        SlimeChunkOracle oracle = new SlimeChunkOracle(SEED);
+
+        for (int z = ORIGIN_Z; z < ORIGIN_Z + HEIGHT; z++) {
+            for (int x = ORIGIN_X; x < ORIGIN_X + WIDTH; x++) {
+                assertEquals(oracle.isSlimeChunk(x, z), cache.isSlimeChunk(x, z), "chunk " + x + "," + z);
+                assertEquals(oracle.isSlimeChunk(x, z), cache.bits().get(z - ORIGIN_Z, x - ORIGIN_X),
+                        "bits " + x + "," + z);
+            }
+        }
+
+        long[] row = new long[2];
+        int rowX = ORIGIN_X + 37;
+        int rowCount = 100;
+        cache.readRow(ORIGIN_Z + 5, rowX, rowCount, row);
+        for (int i = 0; i < rowCount; i++) {
+            assertEquals(oracle.isSlimeChunk(rowX + i, ORIGIN_Z + 5), ((row[i >> 6] >>> (i & 63)) & 1L) == 1,
+                    "readRow bit " + i);
+        }
+
+        long[] column = new long[2];
+        int columnZ = ORIGIN_Z + 3;
+        int columnCount = 80;
+        cache.readColumn(ORIGIN_X + 11, columnZ, columnCount, column);
+        for (int i = 0; i < columnCount; i++) {
+            assertEquals(oracle.isSlimeChunk(ORIGIN_X + 11, columnZ + i), ((column[i >> 6] >>> (i & 63)) & 1L) == 1,
+                    "readColumn bit " + i);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.cacezhou.slimefinder;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 差分校验：SlimeChunkOracle 与 Main.isSlimeChunk 逐个区块比对
+ */
+class SlimeChunkOracleTest {
+    private static final long[] SEEDS = {0L, 12345L, -4172144997902289642L, Long.MAX_VALUE, Long.MIN_VALUE};
+    // 5 个种子 x 16 个区域 x 256 x 256，共约 524 万个区块
+    private static final int SIDE = 256;
+
+    // 覆盖原点附近、int 溢出附近与世界边界附近的坐标
+    @Test
+    void matchesIsSlimeChunkAcrossRegions() {
+        Random random = new Random();
+        int[] origins = {-SIDE / 2, Integer.MAX_VALUE - SIDE, Integer.MIN_VALUE, 30_000_000 - SIDE / 2};
+        long[] xTerms = new long[SIDE];
+        long[] zTerms = new long[SIDE];
+        for (long seed : SEEDS) {
+            SlimeChunkOracle oracle = new SlimeChunkOracle(seed);
+            for (int originX : origins) {
+                for (int originZ : origins) {
+                    oracle.fillXTerms(xTerms, originX);
+                    SlimeChunkOracle.fillZTerms(zTerms, originZ);
+                    for (int i = 0; i < SIDE; i++) {
+                        for (int j = 0; j < SIDE; j++) {
+                            int x = originX + i;
+                            int z = originZ + j;
+                            boolean expected = Main.isSlimeChunk(random, seed, x, z);
+                            assertEquals(expected, SlimeChunkOracle.isSlime(xTerms[i], zTerms[j]),
+                                    () -> "isSlime seed=" + seed + " x=" + x + " z=" + z);
+                            assertEquals(expected, oracle.isSlimeChunk(x, z),
+                                    () -> "isSlimeChunk seed=" + seed + " x=" + x + " z=" + z);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // 构造第一次 next(31) 落在拒绝区间 [2^31 - 8, 2^31) 的种子：把目标状态沿 LCG 倒推一步
+    @Test
+    void matchesNextIntRejectionSampling() {
+        Random random = new Random();
+        long mask = (1L << 48) - 1;
+        long inverse = BigInteger.valueOf(0x5DEECE66DL).modInverse(BigInteger.ONE.shiftLeft(48)).longValue();
+        for (long u = (1L << 31) - 8; u < (1L << 31); u++) {
+            long state = (u << 17) | (u & 0x1FFFF);
+            long scrambled = ((state - 0xBL) * inverse) & mask;
+            long rawSeed = scrambled ^ 0x5DEECE66DL ^ 987234911L;
+            random.setSeed(rawSeed ^ 987234911L);
+            assertEquals(random.nextInt(10) == 0, SlimeChunkOracle.isSlime(rawSeed, 0), "rawSeed=" + rawSeed);
+        }
+    }
+}
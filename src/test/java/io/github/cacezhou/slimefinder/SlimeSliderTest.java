@@ -0,0 +1,69 @@
+package io.github.cacezhou.slimefinder;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * INCREMENTAL 计分沿蛇形路径逐步与 RECOUNT 整窗重数、以及逐区块暴力计分比对
+ */
+class SlimeSliderTest {
+    private static final long[] SEEDS = {0L, 12345L, -4172144997902289642L};
+    // 每列走 ROWS 步后右移一列，共经过 COLUMNS 次转向，覆盖向下、向上与向右三种位移
+    private static final int ROWS = 40;
+    private static final int COLUMNS = 70;
+
+    private static void assertModesAgree(long seed, AfkMask[] masks, int startX, int startZ) {
+        SlimeSlider incremental = new SlimeSlider(startX, startZ, ROWS, masks, seed,
+                SlimeSlider.ScoreMode.INCREMENTAL, null);
+        SlimeSlider recount = new SlimeSlider(startX, startZ, ROWS, masks, seed,
+                SlimeSlider.ScoreMode.RECOUNT, null);
+        SlimeChunkOracle oracle = new SlimeChunkOracle(seed);
+        for (int step = 0; step < ROWS * COLUMNS; step++) {
+            incremental.slideNext();
+            recount.slideNext();
+            int x = incremental.getCentreX();
+            int z = incremental.getCentreZ();
+            int s = step;
+            assertEquals(recount.getCentreX(), x, () -> "centre x at step " + s);
+            assertEquals(recount.getCentreZ(), z, () -> "centre z at step " + s);
+            for (int k = 0; k < masks.length; k++) {
+                int expected = recount.getScore(k);
+                int mask = k;
+                assertEquals(expected, incremental.getScore(k),
+                        () -> "seed " + seed + " mask " + masks[mask] + " step " + s + " at " + x + "," + z);
+                // 整窗重数本身也对照暴力计分：每次右移转向及其后一步（窗口整体左移，曾经被整窗清零），另外每 16 步抽样一次
+                if (step % ROWS <= 1 || (step & 15) == 0) {
+                    assertEquals(ReferenceScores.score(oracle, masks[k], x, z), expected,
+                            () -> "reference seed " + seed + " mask " + masks[mask] + " at " + x + "," + z);
+                }
+            }
+        }
+    }
+
+    @Test
+    void incrementalMatchesRecountForCircles() {
+        for (long seed : SEEDS) {
+            for (int r : new int[]{1, 4, 8, 33}) {
+                assertModesAgree(seed, new AfkMask[]{AfkMask.circle(r)}, -17, 25);
+            }
+        }
+    }
+
+    @Test
+    void incrementalMatchesRecountForOtherMasks() {
+        for (long seed : SEEDS) {
+            assertModesAgree(seed, new AfkMask[]{AfkMask.square(5)}, 1000, -3000);
+            assertModesAgree(seed, new AfkMask[]{AfkMask.annulus(24, 128)}, -500, 500);
+        }
+    }
+
+    // 多个半径共用一个窗口，较小的掩码在窗口内有偏移
+    @Test
+    void incrementalMatchesRecountForSeveralMasks() {
+        AfkMask[] masks = {AfkMask.circle(8), AfkMask.circle(3), AfkMask.annulus(24, 128), AfkMask.circle(6)};
+        for (long seed : SEEDS) {
+            assertModesAgree(seed, masks, 64, -64);
+        }
+    }
+}
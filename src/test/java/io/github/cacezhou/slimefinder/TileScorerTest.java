@@ -0,0 +1,99 @@
+package io.github.cacezhou.slimefinder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TILE 引擎与逐区块暴力计分、以及 SLIDER 引擎的 topN 比对，剪枝开关两种情况都覆盖
+ */
+class TileScorerTest {
+    private static final long[] SEEDS = {0L, 12345L, -4172144997902289642L};
+    // 边长 2 * 100 + 1 = 201 不是单元边长的整数倍，最右一列与最下一行的单元不是正方形
+    private static final int SEARCH_RADIUS = 100;
+    // 得分范围很窄，较大的 topN 必然在同分的点中间截断
+    private static final int[] TOP_N = {1, 10, 137, 1000};
+
+    @Test
+    void scoreTileMatchesReference() {
+        AfkMask[] masks = {AfkMask.circle(8), AfkMask.circle(3), AfkMask.annulus(24, 128)};
+        int[][] tiles = {{-40, 17, 128, 128}, {300, -90, 73, 128}, {-5, -5, 128, 31}, {7, 7, 1, 1}, {0, 0, 64, 65}};
+        for (long seed : SEEDS) {
+            SlimeChunkOracle oracle = new SlimeChunkOracle(seed);
+            TileScorer scorer = new TileScorer(seed, masks, 128, 128, null);
+            for (int[] t : tiles) {
+                scorer.scoreTile(t[0], t[1], t[2], t[3], new int[masks.length]);
+                for (int k = 0; k < masks.length; k++) {
+                    int[] scores = scorer.getScores(k);
+                    for (int dz = 0; dz < t[3]; dz++) {
+                        for (int dx = 0; dx < t[2]; dx++) {
+                            int x = t[0] + dx;
+                            int z = t[1] + dz;
+                            int mask = k;
+                            assertEquals(ReferenceScores.score(oracle, masks[k], x, z), scores[dz * t[2] + dx],
+                                    () -> "seed " + seed + " mask " + masks[mask] + " at " + x + "," + z);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // 剪枝只允许把得分低于门槛的点记为 0，其余点的得分必须准确
+    @Test
+    void prunedScoreTileKeepsEveryPointAboveThreshold() {
+        AfkMask mask = AfkMask.circle(8);
+        for (long seed : SEEDS) {
+            SlimeChunkOracle oracle = new SlimeChunkOracle(seed);
+            TileScorer scorer = new TileScorer(seed, mask, 128, 128, null);
+            for (int minScore : new int[]{20, 30, 40}) {
+                int[] scores = scorer.scoreTile(-64, 200, 128, 97, minScore);
+                for (int dz = 0; dz < 97; dz++) {
+                    for (int dx = 0; dx < 128; dx++) {
+                        int expected = ReferenceScores.score(oracle, mask, -64 + dx, 200 + dz);
+                        int actual = scores[dz * 128 + dx];
+                        assertTrue(actual == expected || (actual == 0 && expected < minScore),
+                                "seed " + seed + " minScore " + minScore + " at " + dx + "," + dz
+                                        + ": expected " + expected + " got " + actual);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void topNMatchesSliderAndReference() {
+        for (long seed : SEEDS) {
+            for (int slimeRadius : new int[]{4, 8}) {
+                AfkMask mask = AfkMask.circle(slimeRadius);
+                List<AsyncSlimeFinder.SimplePoint> reference = ReferenceScores.topN(seed, mask, 30, -20,
+                        SEARCH_RADIUS, TOP_N[TOP_N.length - 1]);
+                for (int topN : TOP_N) {
+                    List<AsyncSlimeFinder.SimplePoint> expected = reference.subList(0, topN);
+                    assertEquals(expected, search(seed, slimeRadius, topN, AsyncSlimeFinder.Engine.SLIDER, false, 0),
+                            "slider seed " + seed + " r " + slimeRadius + " topN " + topN);
+                    for (boolean prune : new boolean[]{false, true}) {
+                        // 默认单元边长 128，以及不整除 128 的 48
+                        for (int unitSize : new int[]{0, 48}) {
+                            assertEquals(expected, search(seed, slimeRadius, topN, AsyncSlimeFinder.Engine.TILE,
+                                    prune, unitSize),
+                                    "tile seed " + seed + " r " + slimeRadius + " topN " + topN
+                                            + " prune " + prune + " unitSize " + unitSize);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<AsyncSlimeFinder.SimplePoint> search(long seed, int slimeRadius, int topN,
+                                                             AsyncSlimeFinder.Engine engine, boolean prune,
+                                                             int unitSize) {
+        SearchOptions options = new SearchOptions().engine(engine).prune(prune).unitSize(unitSize).quiet(true);
+        return ReferenceScores.points(AsyncSlimeFinder.findTopSlimeClusters(seed, 30, -20, SEARCH_RADIUS,
+                slimeRadius, 3, topN, options));
+    }
+}